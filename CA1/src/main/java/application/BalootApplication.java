@@ -3,14 +3,51 @@ package application;
 import service.Baloot;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @SpringBootApplication
 @ComponentScan(basePackages = "controllers")
+@EnableConfigurationProperties(BalootProperties.class)
 public class BalootApplication {
-    public static void main(String[] args) {
-        Baloot.getInstance().fetchAndStoreData();
-        SpringApplication.run(BalootApplication.class, args);
+    static BalootProperties bindBalootProperties(Environment environment) {
+        return Binder.get(environment).bind("baloot", BalootProperties.class).orElseGet(BalootProperties::new);
+    }
 
+    // Runs once Spring has read its configuration sources and before any
+    // controller exists, so the datasets load with the configured settings.
+    private static void startBaloot(Environment environment) {
+        bindBalootProperties(environment).exportToSystemProperties();
+        // The singleton loads the datasets when it is created.
+        Baloot.getInstance().enableBackgroundSuggestionRefresh();
+        try {
+            Baloot.getInstance().enableWriteAheadLog();
+            Baloot.getInstance().enableCatalogReload();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Baloot.getInstance().closeCatalogReload();
+                Baloot.getInstance().saveSnapshot();
+                Baloot.getInstance().closeWriteAheadLog();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(BalootApplication.class);
+        application.addListeners((ApplicationListener<ApplicationEnvironmentPreparedEvent>) event ->
+                startBaloot(event.getEnvironment()));
+        application.run(args);
     }
 }
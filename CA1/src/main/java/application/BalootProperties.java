@@ -0,0 +1,46 @@
+package application;
+
+import database.DataParser;
+import database.DatabaseSnapshot;
+import database.WriteAheadLog;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Settings under baloot.*, bound from any Spring source: application.properties,
+// environment variables such as BALOOT_DATA_PATH, system properties or
+// --baloot.* arguments.
+@Getter
+@ConfigurationProperties(prefix = "baloot")
+public class BalootProperties {
+    private final Data data = new Data();
+    private final Location snapshot = new Location();
+    private final Location wal = new Location();
+
+    @Getter
+    @Setter
+    public static class Data {
+        private String path;
+        private boolean mmap;
+    }
+
+    @Getter
+    @Setter
+    public static class Location {
+        private String path;
+    }
+
+    // The loaders look their settings up in system properties, so the bound
+    // values are handed over there before the datasets load.
+    void exportToSystemProperties() {
+        setIfPresent(DataParser.DATA_PATH_PROPERTY, data.getPath());
+        System.setProperty(DataParser.MEMORY_MAPPED_PROPERTY, Boolean.toString(data.isMmap()));
+        setIfPresent(DatabaseSnapshot.SNAPSHOT_PATH_PROPERTY, snapshot.getPath());
+        setIfPresent(WriteAheadLog.LOG_PATH_PROPERTY, wal.getPath());
+    }
+
+    private static void setIfPresent(String key, String value) {
+        if (value != null)
+            System.setProperty(key, value);
+    }
+}
@@ -4,6 +4,7 @@ import service.Baloot;
 import model.Comment;
 import model.Commodity;
 import model.User;
+import exceptions.InvalidPageRange;
 import exceptions.NotExistentCommodity;
 import exceptions.NotExistentUser;
 import org.springframework.http.HttpStatus;
@@ -74,12 +75,20 @@ public class CommoditiesController {
     }
 
     @GetMapping(value = "/commodities/{id}/comment")
-    public ResponseEntity<ArrayList<Comment>> getCommodityComment(@PathVariable String id) {
+    public ResponseEntity<ArrayList<Comment>> getCommodityComment(@PathVariable String id,
+                                                                  @RequestParam(required = false) Integer offset,
+                                                                  @RequestParam(required = false) Integer limit) {
         try {
-            ArrayList<Comment> comments = baloot.getCommentsForCommodity(Integer.parseInt(id));
+            ArrayList<Comment> comments;
+            if (offset == null && limit == null)
+                comments = baloot.getCommentsForCommodity(Integer.parseInt(id));
+            else
+                comments = baloot.getCommentsForCommodity(Integer.parseInt(id),
+                        offset == null ? 0 : offset,
+                        limit == null ? Integer.MAX_VALUE : limit);
 
             return new ResponseEntity<>(comments, HttpStatus.OK);
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | InvalidPageRange e) {
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
     }
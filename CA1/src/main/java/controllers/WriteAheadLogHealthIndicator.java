@@ -0,0 +1,29 @@
+package controllers;
+
+import service.Baloot;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Reports the service down once the write-ahead log failed, as changes are
+// refused from then on.
+@Component
+public class WriteAheadLogHealthIndicator implements HealthIndicator {
+
+    private Baloot baloot = Baloot.getInstance();
+
+    public void setBaloot(Baloot baloot) {
+        this.baloot = baloot;
+    }
+
+    @Override
+    public Health health() {
+        IOException failure = baloot.getWriteAheadLogFailure();
+        if (failure != null)
+            return Health.down(failure).build();
+
+        return Health.up().build();
+    }
+}
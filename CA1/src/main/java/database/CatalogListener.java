@@ -0,0 +1,25 @@
+package database;
+
+import model.Commodity;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+// Notified whenever something that commodity rankings depend on changes.
+public interface CatalogListener {
+    void commodityAdded(Commodity commodity);
+
+    void ratingChanged(Commodity commodity, float previousRating);
+
+    void categoriesChanged(Commodity commodity);
+
+    void catalogReplaced();
+
+    // A catalog file reload replaced records with updated copies, keyed by
+    // the record they replaced, of which the reranked ones have new
+    // categories or a new rating. It also added and removed commodities. The
+    // rest of the catalog is as it was.
+    void catalogReloaded(Map<Commodity, Commodity> replaced, Set<Commodity> reranked,
+                         Collection<Commodity> added, Set<Commodity> removed);
+}
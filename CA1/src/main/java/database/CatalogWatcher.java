@@ -0,0 +1,96 @@
+package database;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Watches the data directory and hands every watched file that changed to the
+// reloader. A file is often written in several steps, so changes are handed
+// over once the directory has been quiet for a moment. A file that fails to
+// load, such as one caught half written, is retried on its next change.
+public class CatalogWatcher {
+    static final long DEFAULT_QUIET_MILLIS = 200;
+
+    public interface Reloader {
+        void reload(String fileName) throws IOException;
+    }
+
+    private final Path directory;
+    private final Set<String> fileNames;
+    private final Reloader reloader;
+    private final long quietMillis;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public CatalogWatcher(Path directory, Set<String> fileNames, Reloader reloader) {
+        this(directory, fileNames, reloader, DEFAULT_QUIET_MILLIS);
+    }
+
+    CatalogWatcher(Path directory, Set<String> fileNames, Reloader reloader, long quietMillis) {
+        this.directory = directory;
+        this.fileNames = fileNames;
+        this.reloader = reloader;
+        this.quietMillis = quietMillis;
+    }
+
+    public void start() throws IOException {
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watcher = new Thread(this::watch, "catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void close() throws IOException {
+        if (watchService == null)
+            return;
+
+        watchService.close();
+        watcher.interrupt();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Set<String> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+
+                WatchKey key;
+                while ((key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null)
+                    collect(key, changed);
+
+                for (String fileName : changed) {
+                    try {
+                        reloader.reload(fileName);
+                    } catch (IOException | RuntimeException ignored) {
+                        // The data loaded before stays in place.
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Closed.
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(fileNames);
+                continue;
+            }
+
+            String fileName = ((Path) event.context()).getFileName().toString();
+            if (fileNames.contains(fileName))
+                changed.add(fileName);
+        }
+        key.reset();
+    }
+}
@@ -0,0 +1,121 @@
+package database;
+
+import model.Commodity;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One version of the commodities table: the records in catalog order and every
+// index over them. Adds and category edits update the published catalog in
+// place under the table's write lock and bump its version. A catalog reload
+// builds a new one off to the side and publishes it with one reference swap,
+// so readers see either the old catalog or the new one, never a mix.
+class CommodityCatalog {
+    final ArrayList<Commodity> commodities;
+
+    // Primary-key index, read without a lock. When a key is duplicated the
+    // first record wins, same as the old linear lookups.
+    final ConcurrentHashMap<String, Commodity> byId;
+
+    // Secondary index for provider listings, in catalog order.
+    final HashMap<String, ArrayList<Commodity>> byProviderId;
+
+    // Inverted category index over positions in the commodities list, so
+    // walking a BitSet yields commodities in catalog order.
+    final HashMap<String, Integer> positionsById;
+    final HashMap<String, BitSet> positionsByCategory;
+    final TrigramIndex nameIndex;
+
+    int version;
+
+    CommodityCatalog() {
+        this(new ArrayList<>(), new HashMap<>(), new HashMap<>(), new TrigramIndex());
+    }
+
+    private CommodityCatalog(ArrayList<Commodity> commodities, HashMap<String, Integer> positionsById,
+                             HashMap<String, BitSet> positionsByCategory, TrigramIndex nameIndex) {
+        this.commodities = commodities;
+        this.byId = new ConcurrentHashMap<>();
+        this.byProviderId = new HashMap<>();
+        this.positionsById = positionsById;
+        this.positionsByCategory = positionsByCategory;
+        this.nameIndex = nameIndex;
+    }
+
+    static CommodityCatalog of(List<Commodity> commodities) {
+        CommodityCatalog catalog = new CommodityCatalog();
+        for (Commodity commodity : commodities)
+            catalog.add(commodity);
+
+        return catalog;
+    }
+
+    void add(Commodity commodity) {
+        int position = commodities.size();
+        commodities.add(commodity);
+        indexRecord(commodity);
+        if (commodity.getId() != null)
+            positionsById.putIfAbsent(commodity.getId(), position);
+        indexCategories(commodity.getCategories(), position);
+        nameIndex.add(commodity.getName(), position);
+        version++;
+    }
+
+    // A catalog with the records replaced in place, since no record was
+    // removed or added and none of the replacements moved in the position
+    // indexes: they keep their name, categories and ID. The position indexes
+    // are shared with this catalog, which is dropped once the new one is
+    // published.
+    CommodityCatalog withRecords(List<Commodity> commodities) {
+        CommodityCatalog catalog = new CommodityCatalog(new ArrayList<>(commodities), positionsById,
+                positionsByCategory, nameIndex);
+        for (Commodity commodity : commodities)
+            catalog.indexRecord(commodity);
+
+        return catalog;
+    }
+
+    void updateCategories(Commodity commodity, ArrayList<String> categories) {
+        Integer position = positionsById.get(commodity.getId());
+        boolean indexed = position != null && commodities.get(position) == commodity;
+
+        if (indexed)
+            unindexCategories(commodity.getCategories(), position);
+        commodity.setCategories(categories);
+        if (indexed)
+            indexCategories(categories, position);
+        version++;
+    }
+
+    private void indexRecord(Commodity commodity) {
+        if (commodity.getId() != null)
+            byId.putIfAbsent(commodity.getId(), commodity);
+        byProviderId.computeIfAbsent(commodity.getProviderId(), key -> new ArrayList<>()).add(commodity);
+    }
+
+    private void indexCategories(ArrayList<String> categories, int position) {
+        if (categories == null)
+            return;
+
+        for (String category : categories)
+            positionsByCategory.computeIfAbsent(category, key -> new BitSet()).set(position);
+    }
+
+    private void unindexCategories(ArrayList<String> categories, int position) {
+        if (categories == null)
+            return;
+
+        for (String category : categories) {
+            BitSet positions = positionsByCategory.get(category);
+            if (positions == null)
+                continue;
+
+            positions.clear(position);
+            if (positions.isEmpty())
+                positionsByCategory.remove(category);
+        }
+    }
+}
@@ -1,64 +1,107 @@
 package database;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import model.Comment;
 import model.Commodity;
 import model.Provider;
 import model.User;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
 
 
 public class DataParser {
+    public static final String DATA_PATH_PROPERTY = "baloot.data.path";
+    public static final String MEMORY_MAPPED_PROPERTY = "baloot.data.mmap";
+    public static final String USERS_FILE = "users.json";
+    public static final String PROVIDERS_FILE = "providers.json";
+    public static final String COMMODITIES_FILE = "commodities.json";
+    public static final String COMMENTS_FILE = "comments.json";
+    private static final String DEFAULT_DATA_PATH = "src/main/java/database/data/";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final String dataPath = "src/main/java/database/data/";
+    private final String dataPath;
+    private final boolean memoryMapped;
     Database database;
 
     public DataParser(Database database) {
+        this(database, System.getProperty(DATA_PATH_PROPERTY, DEFAULT_DATA_PATH),
+                Boolean.getBoolean(MEMORY_MAPPED_PROPERTY));
+    }
+
+    public DataParser(Database database, String dataPath) {
+        this(database, dataPath, false);
+    }
+
+    public DataParser(Database database, String dataPath, boolean memoryMapped) {
         this.database = database;
+        this.dataPath = dataPath;
+        this.memoryMapped = memoryMapped;
     }
 
-    public void getUsersList() throws IOException {
-        String filePath = dataPath + "users.json";
-        String usersString = new String(Files.readAllBytes(Paths.get(filePath)));
+    public Path getDataDirectory() {
+        return Paths.get(dataPath);
+    }
 
-        List<User> userList = objectMapper.readValue(usersString, new TypeReference<>() {
-        });
-        database.setUsers((ArrayList<User>) userList);
+    public void getUsersList() throws IOException {
+        database.loadUsers(records(USERS_FILE, User.class));
     }
 
     public void getProvidersList() throws IOException {
-        String filePath = dataPath + "providers.json";
-        String providersString = new String(Files.readAllBytes(Paths.get(filePath)));
-
-        List<Provider> providerList = objectMapper.readValue(providersString, new TypeReference<>() {
-        });
-        database.setProviders((ArrayList<Provider>) providerList);
+        database.loadProviders(records(PROVIDERS_FILE, Provider.class));
     }
 
     public void getCommoditiesList() throws IOException {
-        String filePath = dataPath + "commodities.json";
-        String commoditiesString = new String(Files.readAllBytes(Paths.get(filePath)));
-
-        List<Commodity> commodityList = objectMapper.readValue(commoditiesString, new TypeReference<>() {
-        });
-        database.setCommodities((ArrayList<Commodity>) commodityList);
+        database.loadCommodities(records(COMMODITIES_FILE, Commodity.class));
     }
 
     public void getCommentsList() throws IOException {
-        String filePath = dataPath + "comments.json";
-        String commentsString = new String(Files.readAllBytes(Paths.get(filePath)));
+        // Database numbers the comments as they arrive, so a comment's ID is
+        // its position in the file.
+        database.loadComments(records(COMMENTS_FILE, Comment.class));
+    }
 
-        List<Comment> commentsList = objectMapper.readValue(commentsString, new TypeReference<>() {
-        });
-        database.setComments((ArrayList<Comment>) commentsList);
+    // Applies the current catalog files on top of the loaded data, see
+    // Database.reloadCommodities; returns whether anything changed.
+    public boolean reloadCommodities() throws IOException {
+        return database.reloadCommodities(records(COMMODITIES_FILE, Commodity.class));
+    }
+
+    public boolean reloadProviders() throws IOException {
+        return database.reloadProviders(records(PROVIDERS_FILE, Provider.class));
+    }
+
+    // Streams the elements of the JSON array in the file, binding one element
+    // at a time, so neither the file nor the whole list is held in memory.
+    // In memory-mapped mode the parser reads the file's mapped pages instead
+    // of copying them through read calls.
+    private <T> RecordSource<T> records(String fileName, Class<T> type) {
+        Path filePath = Paths.get(dataPath, fileName);
+        ObjectReader reader = objectMapper.readerFor(type);
+
+        return sink -> {
+            try (InputStream input = open(filePath);
+                 JsonParser parser = objectMapper.getFactory().createParser(input)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY)
+                    throw new JsonParseException(parser, filePath + " does not hold a JSON array");
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == null)
+                        throw new JsonParseException(parser, filePath + " ends inside its array");
+                    sink.accept(reader.readValue(parser));
+                }
+            }
+        };
+    }
 
-        for (Comment comment : commentsList)
-            comment.setId(commentsList.indexOf(comment));
+    private InputStream open(Path filePath) throws IOException {
+        return memoryMapped ? new MappedFileInputStream(filePath) : Files.newInputStream(filePath);
     }
 }
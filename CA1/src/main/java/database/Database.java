@@ -2,40 +2,850 @@ package database;
 
 import model.Comment;
 import model.Commodity;
+import model.MutationListener;
 import model.Provider;
+import model.RatingListener;
 import model.User;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
-@Getter
-@Setter
+// Every table (users, providers, commodities, comments) has its own read-write
+// lock guarding its list and secondary indexes, so a writer only blocks readers
+// of the same table. Primary-key lookups go through concurrent maps and take no
+// lock at all. List getters return snapshots. The commodities table and its
+// indexes are held together in a CommodityCatalog.
 public class Database {
     @Getter
     private static final Database instance = new Database();
 
+    private static final float MAX_RATE = 10;
+
     private Database() {
     }
 
+    private final ReentrantReadWriteLock usersLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock providersLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock commoditiesLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock commentsLock = new ReentrantReadWriteLock();
+
     private ArrayList<User> users = new ArrayList<>();
     private ArrayList<Provider> providers = new ArrayList<>();
-    private ArrayList<Commodity> commodities = new ArrayList<>();
+    private volatile CommodityCatalog catalog = new CommodityCatalog();
     private ArrayList<Comment> comments = new ArrayList<>();
 
+    // Primary-key indexes, kept in sync with the lists above. When a key is
+    // duplicated the first record wins, same as the old linear lookups.
+    private final ConcurrentHashMap<String, User> usersByUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Provider> providersById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Comment> commentsById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> providerIdsByName = new ConcurrentHashMap<>();
+
+    // Upper bound of any commodity's rating, raised on insertion and whenever
+    // addRate changes a rating.
+    @Getter
+    private volatile float ratingCeiling = MAX_RATE;
+
+    // Commodities as commodities.json last described them, by ID, detached
+    // from the live records. A reload diffs the new file against these, so it
+    // applies only what the file changed and keeps what sales and requests
+    // changed since. Replaced whole, never modified.
+    private volatile Map<String, Commodity> catalogBaseline = Map.of();
+
+    // Serializes catalog reloads, so each one diffs against the catalog the
+    // previous one published.
+    private final Object catalogReloadLock = new Object();
+
+    @Getter
+    private final StockLocks stockLocks = new StockLocks();
+
+    private final List<CatalogListener> catalogListeners = new CopyOnWriteArrayList<>();
+    private final RatingListener ratingRelay = (commodity, previousRating) -> {
+        raiseRatingCeiling(commodity.getRating());
+        for (CatalogListener listener : catalogListeners)
+            listener.ratingChanged(commodity, previousRating);
+    };
+
+    // Handed to every stored model, forwarding its changes to the current
+    // mutation listener, if any.
+    private volatile MutationListener mutationListener;
+    private final MutationListener mutationRelay = new MutationListener() {
+        @Override
+        public void beforeChange() {
+            MutationListener listener = mutationListener;
+            if (listener != null)
+                listener.beforeChange();
+        }
+
+        @Override
+        public void creditAdded(User user) {
+            MutationListener listener = mutationListener;
+            if (listener != null)
+                listener.creditAdded(user);
+        }
+
+        @Override
+        public void commodityRated(Commodity commodity, String username, int score) {
+            MutationListener listener = mutationListener;
+            if (listener != null)
+                listener.commodityRated(commodity, username, score);
+        }
+
+        @Override
+        public void commentVoted(Comment comment, String username, String vote) {
+            MutationListener listener = mutationListener;
+            if (listener != null)
+                listener.commentVoted(comment, username, vote);
+        }
+    };
+
+    // Next free comment ID, always above every stored comment's ID, so IDs
+    // handed out concurrently never collide.
+    private final AtomicInteger nextCommentId = new AtomicInteger();
+
+    // Comments of each commodity in insertion order, oldest first.
+    private final HashMap<Integer, ArrayList<Comment>> commentsByCommodityId = new HashMap<>();
+
+    public ArrayList<User> getUsers() {
+        usersLock.readLock().lock();
+        try {
+            return new ArrayList<>(users);
+        } finally {
+            usersLock.readLock().unlock();
+        }
+    }
+
+    public ArrayList<Provider> getProviders() {
+        providersLock.readLock().lock();
+        try {
+            return new ArrayList<>(providers);
+        } finally {
+            providersLock.readLock().unlock();
+        }
+    }
+
+    public ArrayList<Commodity> getCommodities() {
+        commoditiesLock.readLock().lock();
+        try {
+            return new ArrayList<>(catalog.commodities);
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+    }
+
+    public ArrayList<Comment> getComments() {
+        commentsLock.readLock().lock();
+        try {
+            return new ArrayList<>(comments);
+        } finally {
+            commentsLock.readLock().unlock();
+        }
+    }
+
+    public int getCommentCount() {
+        commentsLock.readLock().lock();
+        try {
+            return comments.size();
+        } finally {
+            commentsLock.readLock().unlock();
+        }
+    }
+
+    public void setUsers(ArrayList<User> users) {
+        usersLock.writeLock().lock();
+        try {
+            this.users = new ArrayList<>(users);
+            usersByUsername.clear();
+            for (User user : users)
+                indexUser(user);
+        } finally {
+            usersLock.writeLock().unlock();
+        }
+    }
+
+    public void setProviders(ArrayList<Provider> providers) {
+        providersLock.writeLock().lock();
+        try {
+            this.providers = new ArrayList<>(providers);
+            providersById.clear();
+            providerIdsByName.clear();
+            for (Provider provider : providers)
+                indexProvider(provider);
+        } finally {
+            providersLock.writeLock().unlock();
+        }
+    }
+
+    public void setCommodities(ArrayList<Commodity> commodities) {
+        replaceCatalog(CommodityCatalog.of(commodities));
+    }
+
+    public void setComments(ArrayList<Comment> comments) {
+        commentsLock.writeLock().lock();
+        try {
+            this.comments = new ArrayList<>(comments);
+            commentsById.clear();
+            commentsByCommodityId.clear();
+            nextCommentId.set(0);
+            for (Comment comment : comments)
+                indexComment(comment);
+        } finally {
+            commentsLock.writeLock().unlock();
+        }
+    }
+
+    // The load methods replace a table with the records the source streams in,
+    // indexing each one as it arrives instead of building a list first. Loaded
+    // comments are numbered in the order they arrive.
+    void loadUsers(RecordSource<User> source) throws IOException {
+        usersLock.writeLock().lock();
+        try {
+            users = new ArrayList<>();
+            usersByUsername.clear();
+            source.forEach(user -> {
+                users.add(user);
+                indexUser(user);
+            });
+        } finally {
+            usersLock.writeLock().unlock();
+        }
+    }
+
+    void loadProviders(RecordSource<Provider> source) throws IOException {
+        providersLock.writeLock().lock();
+        try {
+            providers = new ArrayList<>();
+            providersById.clear();
+            providerIdsByName.clear();
+            source.forEach(provider -> {
+                providers.add(provider);
+                indexProvider(provider);
+            });
+        } finally {
+            providersLock.writeLock().unlock();
+        }
+    }
+
+    void loadCommodities(RecordSource<Commodity> source) throws IOException {
+        CommodityCatalog loaded = new CommodityCatalog();
+        source.forEach(loaded::add);
+        replaceCatalog(loaded);
+    }
+
+    // Publishes a catalog built off to the side in place of the whole table.
+    private void replaceCatalog(CommodityCatalog replacement) {
+        float ceiling = MAX_RATE;
+        for (Commodity commodity : replacement.commodities)
+            ceiling = Math.max(ceiling, attach(commodity));
+
+        commoditiesLock.writeLock().lock();
+        try {
+            catalog = replacement;
+            ratingCeiling = ceiling;
+        } finally {
+            commoditiesLock.writeLock().unlock();
+        }
+        catalogBaseline = catalogCopies(replacement.commodities);
+
+        for (CatalogListener listener : catalogListeners)
+            listener.catalogReplaced();
+    }
+
+    // Snapshots keep the catalog baseline, so the first reload after a
+    // restart still diffs against the file the service last applied.
+    List<Commodity> getCatalogBaseline() {
+        return new ArrayList<>(catalogBaseline.values());
+    }
+
+    void restoreCatalogBaseline(RecordSource<Commodity> source) throws IOException {
+        ArrayList<Commodity> baseline = new ArrayList<>();
+        source.forEach(baseline::add);
+        catalogBaseline = catalogCopies(baseline);
+    }
+
+    void loadComments(RecordSource<Comment> source) throws IOException {
+        replaceComments(source, true);
+    }
+
+    // Same as loadComments, but keeps the IDs the comments already have.
+    void restoreComments(RecordSource<Comment> source) throws IOException {
+        replaceComments(source, false);
+    }
+
+    private void replaceComments(RecordSource<Comment> source, boolean numbered) throws IOException {
+        commentsLock.writeLock().lock();
+        try {
+            comments = new ArrayList<>();
+            commentsById.clear();
+            commentsByCommodityId.clear();
+            nextCommentId.set(0);
+            source.forEach(comment -> {
+                if (numbered)
+                    comment.setId(nextCommentId.getAndIncrement());
+                comments.add(comment);
+                indexComment(comment);
+            });
+        } finally {
+            commentsLock.writeLock().unlock();
+        }
+    }
+
+    // The reload methods apply a catalog file dropped while the service runs.
+    // The file is parsed and diffed before the table lock is taken, so list
+    // readers only wait while the diff is applied and ID lookups never wait.
+    // They return whether anything changed.
+    //
+    // Providers are updated in place. Commodities are diffed against the
+    // catalog baseline, and only the fields the file changed are applied: a
+    // file that was merely touched leaves stock sold since alone. Each
+    // changed commodity becomes an updated copy, and the new catalog with its
+    // indexes is built off to the side, then published with one reference
+    // swap. A reader sees a record and the catalog either wholly before or
+    // wholly after the reload, and removed records are no longer reachable.
+    // The ratings and stock of a changed commodity move to its copy while
+    // the table's write lock and its stock stripes are held, so no checkout
+    // or rating is lost. A change made to the table while the new catalog was
+    // being built sends the reload back to build it again.
+    boolean reloadCommodities(RecordSource<Commodity> source) throws IOException {
+        LinkedHashMap<String, Commodity> incoming = new LinkedHashMap<>();
+        source.forEach(commodity -> {
+            if (commodity.getId() != null)
+                incoming.putIfAbsent(commodity.getId(), commodity);
+        });
+
+        synchronized (catalogReloadLock) {
+            CatalogReload reload;
+            do {
+                CommodityCatalog base;
+                int version;
+                commoditiesLock.readLock().lock();
+                try {
+                    base = catalog;
+                    version = base.version;
+                } finally {
+                    commoditiesLock.readLock().unlock();
+                }
+
+                reload = diffCatalog(base, version, incoming);
+                if (reload == null) {
+                    catalogBaseline = catalogCopies(incoming.values());
+                    return false;
+                }
+            } while (!publish(reload));
+
+            catalogBaseline = catalogCopies(incoming.values());
+            for (CatalogListener listener : catalogListeners)
+                listener.catalogReloaded(reload.replaced(), reload.reranked(), reload.added(), reload.removed());
+        }
+        return true;
+    }
+
+    // A changed commodity: the live record, the file's previous and new
+    // versions of it, and the copy that replaces the record.
+    private record Replacement(Commodity current, Commodity previous, Commodity incoming, Commodity updated) {
+    }
+
+    private record CatalogReload(CommodityCatalog base, int version, CommodityCatalog catalog,
+                                 List<Replacement> replacements, Map<Commodity, Commodity> replaced,
+                                 Set<Commodity> reranked, List<Commodity> added, Set<Commodity> removed) {
+    }
+
+    // Builds the catalog the file describes from the base catalog, without
+    // changing either. Returns null when the file changes nothing.
+    private CatalogReload diffCatalog(CommodityCatalog base, int version, Map<String, Commodity> incoming) {
+        // Live record to the file's previous version of it. Without one, as
+        // for a commodity added directly, the live record stands in.
+        Map<String, Commodity> baseline = catalogBaseline;
+        ArrayList<Commodity> current;
+        commoditiesLock.readLock().lock();
+        try {
+            current = new ArrayList<>(base.commodities);
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+
+        List<Replacement> replacements = new ArrayList<>();
+        Map<Commodity, Commodity> replaced = new IdentityHashMap<>();
+        ArrayList<Commodity> added = new ArrayList<>();
+        for (Commodity commodity : incoming.values()) {
+            Commodity live = base.byId.get(commodity.getId());
+            if (live == null) {
+                added.add(commodity);
+                continue;
+            }
+
+            Commodity previous = baseline.getOrDefault(commodity.getId(), live);
+            if (!isSameCatalogEntry(previous, commodity)) {
+                Replacement replacement = new Replacement(live, previous, commodity, updatedCopy(live, previous, commodity));
+                replacements.add(replacement);
+                replaced.put(live, replacement.updated());
+            }
+        }
+
+        // Shadowed duplicates go as well, the file holds each ID once.
+        Set<Commodity> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Commodity commodity : current)
+            if (!incoming.containsKey(commodity.getId()) || base.byId.get(commodity.getId()) != commodity)
+                removed.add(commodity);
+
+        if (replacements.isEmpty() && added.isEmpty() && removed.isEmpty())
+            return null;
+
+        ArrayList<Commodity> commodities = new ArrayList<>(current.size() + added.size());
+        for (Commodity commodity : current)
+            if (!removed.contains(commodity))
+                commodities.add(replaced.getOrDefault(commodity, commodity));
+        commodities.addAll(added);
+
+        // Records that keep their place, name and categories leave the
+        // position indexes as they are, so those are shared, not rebuilt.
+        boolean positionsKept = added.isEmpty() && removed.isEmpty();
+        for (Replacement replacement : replacements)
+            positionsKept &= Objects.equals(replacement.current().getName(), replacement.updated().getName())
+                    && Objects.equals(replacement.current().getCategories(), replacement.updated().getCategories());
+        CommodityCatalog catalog = positionsKept ? base.withRecords(commodities) : CommodityCatalog.of(commodities);
+        for (Commodity commodity : added)
+            raiseRatingCeiling(attach(commodity));
+        for (Replacement replacement : replacements)
+            attach(replacement.updated());
+
+        Set<Commodity> reranked = Collections.newSetFromMap(new IdentityHashMap<>());
+        return new CatalogReload(base, version, catalog, replacements, replaced, reranked, added, removed);
+    }
+
+    // Swaps the new catalog in, unless the base changed since it was read.
+    private boolean publish(CatalogReload reload) {
+        List<Commodity> outgoing = new ArrayList<>(reload.replaced().keySet());
+        for (Commodity commodity : reload.removed())
+            if (commodity.getId() != null)
+                outgoing.add(commodity);
+
+        int[] stripes = stockLocks.lock(outgoing);
+        try {
+            commoditiesLock.writeLock().lock();
+            try {
+                if (catalog != reload.base() || catalog.version != reload.version())
+                    return false;
+
+                for (Replacement replacement : reload.replacements())
+                    if (moveLiveState(replacement))
+                        reload.reranked().add(replacement.updated());
+                catalog = reload.catalog();
+            } finally {
+                commoditiesLock.writeLock().unlock();
+            }
+        } finally {
+            stockLocks.unlock(stripes);
+        }
+        return true;
+    }
+
+    // The file's changes over the live record's catalog fields. Ratings and
+    // stock are filled in when the copy is published.
+    private static Commodity updatedCopy(Commodity current, Commodity previous, Commodity incoming) {
+        Commodity updated = new Commodity();
+        updated.setId(current.getId());
+        updated.setName(Objects.equals(previous.getName(), incoming.getName()) ? current.getName() : incoming.getName());
+        updated.setProviderId(Objects.equals(previous.getProviderId(), incoming.getProviderId())
+                ? current.getProviderId() : incoming.getProviderId());
+        updated.setPrice(previous.getPrice() == incoming.getPrice() ? current.getPrice() : incoming.getPrice());
+        ArrayList<String> categories = Objects.equals(previous.getCategories(), incoming.getCategories())
+                ? current.getCategories() : incoming.getCategories();
+        updated.setCategories(categories == null ? null : new ArrayList<>(categories));
+        updated.setImage(Objects.equals(previous.getImage(), incoming.getImage()) ? current.getImage() : incoming.getImage());
+        return updated;
+    }
+
+    // Moves the ratings and stock of the live record to its copy and
+    // forwards later ratings there. The rating only comes from the file while
+    // nobody has rated the commodity, and stock only when the file changed
+    // it. Returns whether the categories or rating changed.
+    private boolean moveLiveState(Replacement replacement) {
+        Commodity current = replacement.current();
+        Commodity previous = replacement.previous();
+        Commodity incoming = replacement.incoming();
+        Commodity updated = replacement.updated();
+        boolean reranked = !Objects.equals(previous.getCategories(), incoming.getCategories());
+        synchronized (current) {
+            updated.setInitRate(current.getInitRate());
+            updated.setUserRate(current.getUserRate());
+            if (previous.getRating() != incoming.getRating() && current.getUserRate().isEmpty()) {
+                updated.setRating(incoming.getRating());
+                reranked = true;
+            } else {
+                updated.setRating(current.getRating());
+            }
+            updated.setInStock(previous.getInStock() != incoming.getInStock() ? incoming.getInStock() : current.getInStock());
+            current.replaceWith(updated);
+        }
+        raiseRatingCeiling(updated.getRating());
+        return reranked;
+    }
+
+    boolean reloadProviders(RecordSource<Provider> source) throws IOException {
+        LinkedHashMap<String, Provider> incoming = new LinkedHashMap<>();
+        source.forEach(provider -> {
+            if (provider.getId() != null)
+                incoming.putIfAbsent(provider.getId(), provider);
+        });
+
+        IdentityHashMap<Provider, Provider> changed = new IdentityHashMap<>();
+        ArrayList<Provider> added = new ArrayList<>();
+        for (Provider provider : incoming.values()) {
+            Provider current = providersById.get(provider.getId());
+            if (current == null)
+                added.add(provider);
+            else if (!isSameProvider(current, provider))
+                changed.put(current, provider);
+        }
+
+        Set<Provider> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Provider current : getProviders())
+            if (!incoming.containsKey(current.getId()) || providersById.get(current.getId()) != current)
+                removed.add(current);
+
+        if (changed.isEmpty() && added.isEmpty() && removed.isEmpty())
+            return false;
+
+        providersLock.writeLock().lock();
+        try {
+            changed.forEach((current, provider) -> {
+                if (current.getName() != null)
+                    providerIdsByName.remove(current.getName(), current.getId());
+                current.setName(provider.getName());
+                current.setRegistryDate(provider.getRegistryDate());
+                current.setImage(provider.getImage());
+            });
+            if (!removed.isEmpty()) {
+                providers.removeIf(removed::contains);
+                for (Provider provider : removed) {
+                    if (provider.getId() != null)
+                        providersById.remove(provider.getId(), provider);
+                    if (provider.getName() != null)
+                        providerIdsByName.remove(provider.getName(), provider.getId());
+                }
+            }
+            providers.addAll(added);
+
+            // Renamed and added providers get their names indexed, and a name
+            // freed by another provider goes to the next one holding it.
+            for (Provider provider : providers)
+                indexProvider(provider);
+        } finally {
+            providersLock.writeLock().unlock();
+        }
+
+        return true;
+    }
+
+    // Stock comes from the file as well: the catalog team owns it.
+    private static boolean isSameCatalogEntry(Commodity previous, Commodity incoming) {
+        return Objects.equals(previous.getName(), incoming.getName())
+                && Objects.equals(previous.getProviderId(), incoming.getProviderId())
+                && previous.getPrice() == incoming.getPrice()
+                && Objects.equals(previous.getCategories(), incoming.getCategories())
+                && previous.getInStock() == incoming.getInStock()
+                && Objects.equals(previous.getImage(), incoming.getImage())
+                && previous.getRating() == incoming.getRating();
+    }
+
+    private static Map<String, Commodity> catalogCopies(Collection<Commodity> commodities) {
+        HashMap<String, Commodity> copies = new HashMap<>();
+        for (Commodity commodity : commodities)
+            if (commodity.getId() != null)
+                copies.putIfAbsent(commodity.getId(), catalogCopy(commodity));
+
+        return copies;
+    }
+
+    // The catalog fields only, in new lists, so later changes to the live
+    // record do not reach the copy.
+    private static Commodity catalogCopy(Commodity commodity) {
+        Commodity copy = new Commodity();
+        copy.setId(commodity.getId());
+        copy.setName(commodity.getName());
+        copy.setProviderId(commodity.getProviderId());
+        copy.setPrice(commodity.getPrice());
+        copy.setCategories(commodity.getCategories() == null ? null : new ArrayList<>(commodity.getCategories()));
+        copy.setInStock(commodity.getInStock());
+        copy.setImage(commodity.getImage());
+        copy.setRating(commodity.getRating());
+        return copy;
+    }
+
+    private static boolean isSameProvider(Provider current, Provider incoming) {
+        return Objects.equals(current.getName(), incoming.getName())
+                && Objects.equals(current.getRegistryDate(), incoming.getRegistryDate())
+                && Objects.equals(current.getImage(), incoming.getImage());
+    }
+
     public void addUser(User user) {
-        users.add(user);
+        usersLock.writeLock().lock();
+        try {
+            users.add(user);
+            indexUser(user);
+        } finally {
+            usersLock.writeLock().unlock();
+        }
+    }
+
+    // Adds the user unless the username is taken; returns whether it was added.
+    public boolean addUserIfAbsent(User user) {
+        usersLock.writeLock().lock();
+        try {
+            if (user.getUsername() != null && usersByUsername.containsKey(user.getUsername()))
+                return false;
+
+            users.add(user);
+            indexUser(user);
+            return true;
+        } finally {
+            usersLock.writeLock().unlock();
+        }
     }
 
     public void addProvider(Provider provider) {
-        providers.add(provider);
+        providersLock.writeLock().lock();
+        try {
+            providers.add(provider);
+            indexProvider(provider);
+        } finally {
+            providersLock.writeLock().unlock();
+        }
     }
 
     public void addCommodity(Commodity commodity) {
-        commodities.add(commodity);
+        commoditiesLock.writeLock().lock();
+        try {
+            raiseRatingCeiling(attach(commodity));
+            catalog.add(commodity);
+        } finally {
+            commoditiesLock.writeLock().unlock();
+        }
+
+        for (CatalogListener listener : catalogListeners)
+            listener.commodityAdded(commodity);
+    }
+
+    // A record a reload replaced meanwhile gets the change on its copy.
+    public void updateCommodityCategories(Commodity commodity, ArrayList<String> categories) {
+        Commodity latest;
+        commoditiesLock.writeLock().lock();
+        try {
+            latest = commodity.getLatest();
+            catalog.updateCategories(latest, categories);
+        } finally {
+            commoditiesLock.writeLock().unlock();
+        }
+
+        for (CatalogListener listener : catalogListeners)
+            listener.categoriesChanged(latest);
+    }
+
+    public void addCatalogListener(CatalogListener listener) {
+        catalogListeners.add(listener);
+    }
+
+    public void setMutationListener(MutationListener listener) {
+        mutationListener = listener;
+    }
+
+    public int nextCommentId() {
+        return nextCommentId.getAndIncrement();
     }
 
     public void addComment(Comment comment) {
-        comments.add(comment);
+        commentsLock.writeLock().lock();
+        try {
+            comments.add(comment);
+            indexComment(comment);
+        } finally {
+            commentsLock.writeLock().unlock();
+        }
+    }
+
+    public User findUser(String username) {
+        return username == null ? null : usersByUsername.get(username);
+    }
+
+    public Provider findProvider(String providerId) {
+        return providerId == null ? null : providersById.get(providerId);
+    }
+
+    public Commodity findCommodity(String commodityId) {
+        return commodityId == null ? null : catalog.byId.get(commodityId);
+    }
+
+    public Comment findComment(int commentId) {
+        return commentsById.get(commentId);
+    }
+
+    public String findProviderIdByName(String name) {
+        return name == null ? null : providerIdsByName.get(name);
+    }
+
+    public ArrayList<Commodity> getCommoditiesByProviderId(String providerId) {
+        commoditiesLock.readLock().lock();
+        try {
+            ArrayList<Commodity> provided = catalog.byProviderId.get(providerId);
+            return provided == null ? new ArrayList<>() : new ArrayList<>(provided);
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+    }
+
+    public ArrayList<Commodity> getCommoditiesByCategory(String category) {
+        commoditiesLock.readLock().lock();
+        try {
+            ArrayList<Commodity> result = new ArrayList<>();
+            BitSet positions = catalog.positionsByCategory.get(category);
+            if (positions == null)
+                return result;
+
+            for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1))
+                result.add(catalog.commodities.get(position));
+
+            return result;
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+    }
+
+    // Runs the reader over the live commodities list while holding the
+    // commodities read lock, so catalog positions (such as the ones returned by
+    // getCommodityPositionsInCategories) stay valid for the whole call.
+    public <T> T readCommodities(Function<List<Commodity>, T> reader) {
+        commoditiesLock.readLock().lock();
+        try {
+            return reader.apply(Collections.unmodifiableList(catalog.commodities));
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+    }
+
+    // Positions of the commodities sharing at least one of the categories.
+    public BitSet getCommodityPositionsInCategories(ArrayList<String> categories) {
+        BitSet positions = new BitSet();
+        if (categories == null)
+            return positions;
+
+        commoditiesLock.readLock().lock();
+        try {
+            for (String category : categories) {
+                BitSet inCategory = catalog.positionsByCategory.get(category);
+                if (inCategory != null)
+                    positions.or(inCategory);
+            }
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+
+        return positions;
+    }
+
+    public ArrayList<Commodity> getCommoditiesByName(String name) {
+        commoditiesLock.readLock().lock();
+        try {
+            CommodityCatalog catalog = this.catalog;
+            ArrayList<Commodity> result = new ArrayList<>();
+            int[] candidates = catalog.nameIndex.candidates(name);
+            if (candidates == null) {
+                for (Commodity commodity : catalog.commodities)
+                    if (commodity.getName() != null && commodity.getName().contains(name))
+                        result.add(commodity);
+
+                return result;
+            }
+
+            for (int position : candidates) {
+                Commodity commodity = catalog.commodities.get(position);
+                if (commodity.getName().contains(name))
+                    result.add(commodity);
+            }
+
+            return result;
+        } finally {
+            commoditiesLock.readLock().unlock();
+        }
+    }
+
+    public ArrayList<Comment> getCommentsByCommodityId(int commodityId) {
+        commentsLock.readLock().lock();
+        try {
+            ArrayList<Comment> commented = commentsByCommodityId.get(commodityId);
+            return commented == null ? new ArrayList<>() : new ArrayList<>(commented);
+        } finally {
+            commentsLock.readLock().unlock();
+        }
+    }
+
+    // Returns up to limit comments of a commodity, newest first, skipping the
+    // offset newest ones.
+    public ArrayList<Comment> getCommentsByCommodityId(int commodityId, int offset, int limit) {
+        commentsLock.readLock().lock();
+        try {
+            ArrayList<Comment> page = new ArrayList<>();
+            ArrayList<Comment> commented = commentsByCommodityId.get(commodityId);
+            if (commented == null)
+                return page;
+
+            for (int index = commented.size() - 1 - offset; index >= 0 && page.size() < limit; index--)
+                page.add(commented.get(index));
+
+            return page;
+        } finally {
+            commentsLock.readLock().unlock();
+        }
+    }
+
+    private synchronized void raiseRatingCeiling(float rating) {
+        if (rating > ratingCeiling)
+            ratingCeiling = rating;
+    }
+
+    private void indexUser(User user) {
+        user.setMutationListener(mutationRelay);
+        if (user.getUsername() != null)
+            usersByUsername.putIfAbsent(user.getUsername(), user);
+    }
+
+    private void indexProvider(Provider provider) {
+        if (provider.getId() == null)
+            return;
+
+        providersById.putIfAbsent(provider.getId(), provider);
+        if (provider.getName() != null)
+            providerIdsByName.putIfAbsent(provider.getName(), provider.getId());
+    }
+
+    // Hands the database's listeners to a commodity entering the catalog and
+    // returns the highest rating it can have so far.
+    private float attach(Commodity commodity) {
+        commodity.setRatingListener(ratingRelay);
+        commodity.setMutationListener(mutationRelay);
+        return Math.max(commodity.getRating(), commodity.getInitRate());
+    }
+
+    private void indexComment(Comment comment) {
+        comment.setMutationListener(mutationRelay);
+        nextCommentId.accumulateAndGet(comment.getId() + 1, Math::max);
+        commentsById.putIfAbsent(comment.getId(), comment);
+        commentsByCommodityId.computeIfAbsent(comment.getCommodityId(), key -> new ArrayList<>()).add(comment);
     }
 }
@@ -0,0 +1,421 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// A binary image of every table, including buy lists, ratings and votes.
+// The file starts with a magic number, a format version and the offset of
+// each table's section, so the four tables are restored in parallel straight
+// from a memory-mapped view of the file. A fifth section holds the catalog
+// baseline, the commodities as commodities.json last described them.
+// Snapshots of another version are rejected and the caller falls back to the
+// JSON files.
+public class DatabaseSnapshot {
+    public static final String SNAPSHOT_PATH_PROPERTY = "baloot.snapshot.path";
+    public static final String DEFAULT_SNAPSHOT_PATH = "baloot.snapshot";
+
+    static final int MAGIC = 0x424C5453; // "BLTS"
+    static final int VERSION = 1;
+    private static final int TABLES = 4;
+    private static final int SECTIONS = TABLES + 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * SECTIONS;
+    private static final int NULL_LENGTH = -1;
+
+    private final Database database;
+    private final Path path;
+
+    public DatabaseSnapshot(Database database) {
+        this(database, Path.of(System.getProperty(SNAPSHOT_PATH_PROPERTY, DEFAULT_SNAPSHOT_PATH)));
+    }
+
+    public DatabaseSnapshot(Database database, Path path) {
+        this.database = database;
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Whether a snapshot exists and was written after every given file changed.
+    public boolean isNewerThan(List<Path> files) throws IOException {
+        if (!Files.isRegularFile(path))
+            return false;
+
+        long written = Files.getLastModifiedTime(path).toMillis();
+        for (Path file : files)
+            if (Files.exists(file) && Files.getLastModifiedTime(file).toMillis() > written)
+                return false;
+
+        return true;
+    }
+
+    // Writes to a temporary file first, fsyncs it and moves it into place,
+    // then fsyncs the directory, so after a crash or power loss the snapshot
+    // is either the old one or the complete new one. Only then may the log
+    // records it holds be dropped.
+    public void save() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] offsets = new long[SECTIONS];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int section = 0; section < SECTIONS; section++)
+                out.writeLong(0);
+
+            offsets[0] = out.size();
+            writeUsers(out, database.getUsers());
+            offsets[1] = out.size();
+            writeProviders(out, database.getProviders());
+            offsets[2] = out.size();
+            writeCommodities(out, database.getCommodities());
+            offsets[3] = out.size();
+            writeComments(out, database.getComments());
+            offsets[4] = out.size();
+            writeCommodities(out, database.getCatalogBaseline());
+        }
+
+        // DataOutputStream counts bytes in an int, so larger snapshots would
+        // have wrapped offsets.
+        if (Files.size(temporary) > Integer.MAX_VALUE) {
+            Files.delete(temporary);
+            throw new IOException("Database is too large for a snapshot");
+        }
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES * SECTIONS);
+            for (long offset : offsets)
+                header.putLong(offset);
+            header.flip();
+            channel.write(header, Integer.BYTES * 2);
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(path);
+    }
+
+    // Fsyncs the directory holding the file, so a rename into it survives a
+    // power loss. Some platforms cannot open a directory; there the rename
+    // is as durable as the platform makes it.
+    static void syncDirectory(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    // Replaces every table with the snapshot. Returns false, leaving the
+    // database untouched, when there is no snapshot or it has another format
+    // version; throws when the snapshot is damaged.
+    public boolean load() throws IOException {
+        if (!Files.isRegularFile(path))
+            return false;
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+                return false;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            return false;
+
+        long[] offsets = new long[SECTIONS];
+        for (int section = 0; section < SECTIONS; section++) {
+            offsets[section] = buffer.getLong();
+            if (offsets[section] < HEADER_SIZE || offsets[section] > buffer.limit())
+                throw new IOException("Snapshot " + path + " has a damaged header");
+        }
+
+        List<Callable<Void>> restorers = List.of(
+                () -> { database.loadUsers(records(buffer, offsets[0], SnapshotReader::readUser)); return null; },
+                () -> { database.loadProviders(records(buffer, offsets[1], SnapshotReader::readProvider)); return null; },
+                () -> { database.loadCommodities(records(buffer, offsets[2], SnapshotReader::readCommodity)); return null; },
+                () -> { database.restoreComments(records(buffer, offsets[3], SnapshotReader::readComment)); return null; });
+
+        ExecutorService executor = Executors.newFixedThreadPool(restorers.size());
+        try {
+            for (Future<Void> restorer : executor.invokeAll(restorers))
+                restorer.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause)
+                throw cause;
+            throw new IOException("Snapshot " + path + " is damaged", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            executor.shutdown();
+        }
+
+        // After the commodities, whose load resets the baseline.
+        try {
+            database.restoreCatalogBaseline(records(buffer, offsets[4], SnapshotReader::readCommodity));
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + path + " is damaged", e);
+        }
+
+        return true;
+    }
+
+    private interface RecordDecoder<T> {
+        T read(SnapshotReader reader);
+    }
+
+    // Each section gets its own view of the mapping, so sections are decoded
+    // concurrently without sharing a position.
+    private static <T> RecordSource<T> records(MappedByteBuffer buffer, long offset, RecordDecoder<T> decoder) {
+        return sink -> {
+            SnapshotReader reader = new SnapshotReader(buffer.duplicate().position((int) offset));
+            int count = reader.readInt();
+            for (int i = 0; i < count; i++)
+                sink.accept(decoder.read(reader));
+        };
+    }
+
+    private static void writeUsers(DataOutputStream out, List<User> users) throws IOException {
+        out.writeInt(users.size());
+        for (User user : users)
+            writeUser(out, user);
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        writeString(out, user.getUsername());
+        writeString(out, user.getPassword());
+        writeString(out, user.getEmail());
+        writeString(out, user.getBirthDate());
+        writeString(out, user.getAddress());
+        out.writeFloat(user.getCredit());
+
+        // The user's maps hand out copies of their entries, so the count
+        // written always matches the entries that follow.
+        Set<Map.Entry<Integer, Integer>> rates = user.getCommoditiesRates().entrySet();
+        out.writeInt(rates.size());
+        for (var rate : rates) {
+            out.writeInt(rate.getKey());
+            out.writeInt(rate.getValue());
+        }
+        writeQuantities(out, user.getBuyList());
+        writeQuantities(out, user.getPurchasedList());
+    }
+
+    private static void writeProviders(DataOutputStream out, List<Provider> providers) throws IOException {
+        out.writeInt(providers.size());
+        for (Provider provider : providers) {
+            writeString(out, provider.getId());
+            writeString(out, provider.getName());
+            writeString(out, provider.getRegistryDate());
+            writeString(out, provider.getImage());
+        }
+    }
+
+    private static void writeCommodities(DataOutputStream out, List<Commodity> commodities) throws IOException {
+        out.writeInt(commodities.size());
+        for (Commodity commodity : commodities) {
+            writeString(out, commodity.getId());
+            writeString(out, commodity.getName());
+            writeString(out, commodity.getProviderId());
+            out.writeInt(commodity.getPrice());
+
+            List<String> categories = commodity.getCategories();
+            out.writeInt(categories == null ? NULL_LENGTH : categories.size());
+            if (categories != null)
+                for (String category : categories)
+                    writeString(out, category);
+
+            out.writeFloat(commodity.getRating());
+            out.writeInt(commodity.getInStock());
+            writeString(out, commodity.getImage());
+            writeQuantities(out, commodity.getUserRate());
+            out.writeFloat(commodity.getInitRate());
+        }
+    }
+
+    private static void writeComments(DataOutputStream out, List<Comment> comments) throws IOException {
+        out.writeInt(comments.size());
+        for (Comment comment : comments)
+            writeComment(out, comment);
+    }
+
+    static void writeComment(DataOutput out, Comment comment) throws IOException {
+        out.writeInt(comment.getId());
+        writeString(out, comment.getUserEmail());
+        writeString(out, comment.getUsername());
+        out.writeInt(comment.getCommodityId());
+        writeString(out, comment.getText());
+        writeString(out, comment.getDate());
+        out.writeInt(comment.getLike());
+        out.writeInt(comment.getDislike());
+
+        Map<String, String> votes = comment.getUserVote();
+        out.writeInt(votes.size());
+        for (var vote : votes.entrySet()) {
+            writeString(out, vote.getKey());
+            writeString(out, vote.getValue());
+        }
+    }
+
+    static void writeQuantities(DataOutput out, Map<String, Integer> quantities) throws IOException {
+        Set<Map.Entry<String, Integer>> entries = quantities.entrySet();
+        out.writeInt(entries.size());
+        for (var quantity : entries) {
+            writeString(out, quantity.getKey());
+            out.writeInt(quantity.getValue());
+        }
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Decodes records directly from the mapped bytes; strings are the only
+    // values that need a copy.
+    static class SnapshotReader {
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[64];
+
+        SnapshotReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        float readFloat() {
+            return buffer.getFloat();
+        }
+
+        String readString() {
+            int length = buffer.getInt();
+            if (length == NULL_LENGTH)
+                return null;
+
+            if (length > scratch.length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        HashMap<String, Integer> readQuantities() {
+            int size = buffer.getInt();
+            HashMap<String, Integer> quantities = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++)
+                quantities.put(readString(), buffer.getInt());
+
+            return quantities;
+        }
+
+        User readUser() {
+            User user = new User(readString(), readString(), readString(), readString(), readString());
+            user.setCredit(buffer.getFloat());
+
+            int rates = buffer.getInt();
+            HashMap<Integer, Integer> commoditiesRates = new HashMap<>(rates * 2);
+            for (int i = 0; i < rates; i++)
+                commoditiesRates.put(buffer.getInt(), buffer.getInt());
+            user.setCommoditiesRates(commoditiesRates);
+            user.setBuyList(readQuantities());
+            user.setPurchasedList(readQuantities());
+            return user;
+        }
+
+        Provider readProvider() {
+            Provider provider = new Provider();
+            provider.setId(readString());
+            provider.setName(readString());
+            provider.setRegistryDate(readString());
+            provider.setImage(readString());
+            return provider;
+        }
+
+        Commodity readCommodity() {
+            Commodity commodity = new Commodity();
+            commodity.setId(readString());
+            commodity.setName(readString());
+            commodity.setProviderId(readString());
+            commodity.setPrice(buffer.getInt());
+
+            int categoryCount = buffer.getInt();
+            if (categoryCount == NULL_LENGTH) {
+                commodity.setCategories(null);
+            } else {
+                ArrayList<String> categories = new ArrayList<>(categoryCount);
+                for (int i = 0; i < categoryCount; i++)
+                    categories.add(readString());
+                commodity.setCategories(categories);
+            }
+
+            commodity.setRating(buffer.getFloat());
+            commodity.setInStock(buffer.getInt());
+            commodity.setImage(readString());
+            commodity.setUserRate(readQuantities());
+            commodity.setInitRate(buffer.getFloat());
+            return commodity;
+        }
+
+        Comment readComment() {
+            Comment comment = new Comment();
+            comment.setId(buffer.getInt());
+            comment.setUserEmail(readString());
+            comment.setUsername(readString());
+            comment.setCommodityId(buffer.getInt());
+            comment.setText(readString());
+            comment.setDate(readString());
+            comment.setLike(buffer.getInt());
+            comment.setDislike(buffer.getInt());
+
+            int votes = buffer.getInt();
+            HashMap<String, String> userVote = new HashMap<>(votes * 2);
+            for (int i = 0; i < votes; i++)
+                userVote.put(readString(), readString());
+            comment.setUserVote(userVote);
+            return comment;
+        }
+    }
+}
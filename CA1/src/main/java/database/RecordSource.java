@@ -0,0 +1,10 @@
+package database;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+// Produces the records of one table one at a time, so a table can be loaded
+// without first collecting it into a list.
+interface RecordSource<T> {
+    void forEach(Consumer<T> sink) throws IOException;
+}
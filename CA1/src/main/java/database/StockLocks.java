@@ -0,0 +1,46 @@
+package database;
+
+import model.Commodity;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Striped locks over commodity stock. Whatever checks and then changes the
+// stock of some commodities, a checkout or a catalog reload, holds their
+// stripes meanwhile. Stripes are always taken in ascending order, so two
+// holders cannot deadlock, and holders of unrelated commodities rarely wait
+// on each other.
+public class StockLocks {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    StockLocks() {
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new ReentrantLock();
+    }
+
+    // Locks the stripes of the commodities and returns them for unlock.
+    public int[] lock(Collection<Commodity> commodities) {
+        return lockIds(commodities.stream().map(Commodity::getId).toList());
+    }
+
+    // Same by commodity ID. A checkout locks the IDs before it looks the
+    // commodities up, so a catalog reload cannot replace them meanwhile.
+    public int[] lockIds(Collection<String> ids) {
+        int[] stripes = ids.stream()
+                .mapToInt(id -> Math.floorMod(id.hashCode(), STRIPES))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes)
+            locks[stripe].lock();
+
+        return stripes;
+    }
+
+    public void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--)
+            locks[stripes[i]].unlock();
+    }
+}
@@ -0,0 +1,66 @@
+package database;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Maps every three-character substring of an indexed text to the positions
+// of the texts that contain it. Positions are expected to be added in
+// increasing order, which keeps every posting list sorted.
+class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private final HashMap<String, Postings> postings = new HashMap<>();
+
+    void add(String text, int position) {
+        if (text == null)
+            return;
+
+        for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+            Postings list = postings.computeIfAbsent(text.substring(start, start + GRAM_LENGTH), key -> new Postings());
+            list.add(position);
+        }
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    // Returns the positions of the texts that may contain the query, in
+    // increasing order: the postings of its rarest trigram. Callers still have
+    // to confirm each candidate. Queries shorter than a trigram return null,
+    // meaning every text is a candidate.
+    int[] candidates(String query) {
+        if (query.length() < GRAM_LENGTH)
+            return null;
+
+        Postings rarest = null;
+        for (int start = 0; start + GRAM_LENGTH <= query.length(); start++) {
+            Postings list = postings.get(query.substring(start, start + GRAM_LENGTH));
+            if (list == null)
+                return new int[0];
+            if (rarest == null || list.size < rarest.size)
+                rarest = list;
+        }
+
+        return rarest.toArray();
+    }
+
+    private static class Postings {
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(int position) {
+            // A text repeating a trigram must appear once in its list.
+            if (size > 0 && positions[size - 1] == position)
+                return;
+
+            if (size == positions.length)
+                positions = Arrays.copyOf(positions, size * 2);
+            positions[size++] = position;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(positions, size);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.MutationListener;
+import model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// An append-only log of every change made since the last snapshot. Each
+// record holds the state a change left behind (a user's new credit, an item's
+// new quantity) rather than the change itself, so replaying a record over a
+// snapshot that already contains it is harmless. Records of one model are
+// appended while the model is locked, so they are replayed in the order the
+// changes were made.
+//
+// Appending only copies the framed record into a buffer. A flusher thread
+// writes and fsyncs whatever has accumulated once per commit interval (group
+// commit), so a crash loses at most the last interval. Every record carries
+// its length and a CRC, and replay stops at the first torn record.
+//
+// Records stay buffered until they are written and fsynced. A failed write
+// is cut off the file and retried whole, so the log never has a gap. The
+// first failure is kept: from then on appends throw, and the service reports
+// itself unhealthy instead of taking changes it cannot log.
+public class WriteAheadLog implements MutationListener {
+    public static final String LOG_PATH_PROPERTY = "baloot.wal.path";
+    public static final String DEFAULT_LOG_PATH = "baloot.wal";
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+
+    private static final byte USER_ADDED = 1;
+    private static final byte COMMENT_ADDED = 2;
+    private static final byte CREDIT_ADDED = 3;
+    private static final byte BUY_LIST_ITEM_CHANGED = 4;
+    private static final byte CHECKED_OUT = 5;
+    private static final byte COMMODITY_RATED = 6;
+    private static final byte COMMENT_VOTED = 7;
+    private static final byte CATEGORIES_CHANGED = 8;
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int NULL_LENGTH = -1;
+
+    private final Path path;
+    // Holds the records written before the snapshot that is being saved.
+    private final Path rotatedPath;
+    private final long commitIntervalNanos;
+
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    // Guards the channel, so batches reach the file in the order they were
+    // taken from the buffer.
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    // End of the last batch that was written and fsynced.
+    private long committedSize;
+    private Thread flusher;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    public WriteAheadLog() {
+        this(Path.of(System.getProperty(LOG_PATH_PROPERTY, DEFAULT_LOG_PATH)), DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    public WriteAheadLog(Path path, long commitIntervalMillis) {
+        this.path = path;
+        this.rotatedPath = path.resolveSibling(path.getFileName() + ".old");
+        this.commitIntervalNanos = commitIntervalMillis * 1_000_000;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // The first write or fsync failure, or null while the log is healthy.
+    public IOException getFailure() {
+        return failure;
+    }
+
+    // Throws when the log failed, for callers to check before they change
+    // anything the log would have to record.
+    public void checkHealthy() {
+        IOException failed = failure;
+        if (failed != null)
+            throw new UncheckedIOException("The write-ahead log failed, so no changes are accepted", failed);
+    }
+
+    // Applies the records of the rotated and current files to the database,
+    // cutting a torn tail off the current file. Returns the number of records
+    // applied.
+    public int replay(Database database) throws IOException {
+        int records = 0;
+        if (Files.isRegularFile(rotatedPath))
+            records += replay(database, rotatedPath);
+        if (Files.isRegularFile(path))
+            records += replay(database, path);
+
+        return records;
+    }
+
+    private int replay(Database database, Path file) throws IOException {
+        int records = 0;
+        try (FileChannel replayed = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = replayed.map(FileChannel.MapMode.READ_ONLY, 0, replayed.size());
+            int valid = 0;
+            while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining())
+                    break;
+
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum)
+                    break;
+
+                apply(database, new DatabaseSnapshot.SnapshotReader(payload));
+                buffer.position(buffer.position() + length);
+                valid = buffer.position();
+                records++;
+            }
+
+            if (valid < replayed.size())
+                replayed.truncate(valid);
+        }
+
+        return records;
+    }
+
+    private static void apply(Database database, DatabaseSnapshot.SnapshotReader reader) throws IOException {
+        byte type = reader.readByte();
+        switch (type) {
+            case USER_ADDED -> database.addUserIfAbsent(reader.readUser());
+            case COMMENT_ADDED -> {
+                Comment comment = reader.readComment();
+                if (database.findComment(comment.getId()) == null)
+                    database.addComment(comment);
+            }
+            case CREDIT_ADDED -> {
+                User user = database.findUser(reader.readString());
+                float credit = reader.readFloat();
+                if (user != null)
+                    user.setCredit(credit);
+            }
+            case BUY_LIST_ITEM_CHANGED -> {
+                User user = database.findUser(reader.readString());
+                String commodityId = reader.readString();
+                int quantity = reader.readInt();
+                if (user != null && quantity == 0)
+                    user.getBuyList().remove(commodityId);
+                else if (user != null)
+                    user.getBuyList().put(commodityId, quantity);
+            }
+            case CHECKED_OUT -> {
+                User user = database.findUser(reader.readString());
+                float credit = reader.readFloat();
+                Map<String, Integer> purchased = reader.readQuantities();
+                Map<String, Integer> stocks = reader.readQuantities();
+                if (user != null) {
+                    user.setCredit(credit);
+                    user.getPurchasedList().putAll(purchased);
+                    user.getBuyList().clear();
+                }
+                for (var stock : stocks.entrySet()) {
+                    Commodity commodity = database.findCommodity(stock.getKey());
+                    if (commodity != null)
+                        commodity.setInStock(stock.getValue());
+                }
+            }
+            case COMMODITY_RATED -> {
+                Commodity commodity = database.findCommodity(reader.readString());
+                String username = reader.readString();
+                int score = reader.readInt();
+                if (commodity != null)
+                    commodity.addRate(username, score);
+            }
+            case COMMENT_VOTED -> {
+                Comment comment = database.findComment(reader.readInt());
+                String username = reader.readString();
+                String vote = reader.readString();
+                if (comment != null)
+                    comment.addUserVote(username, vote);
+            }
+            case CATEGORIES_CHANGED -> {
+                Commodity commodity = database.findCommodity(reader.readString());
+                int count = reader.readInt();
+                ArrayList<String> categories = count == NULL_LENGTH ? null : new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    categories.add(reader.readString());
+                if (commodity != null)
+                    database.updateCommodityCategories(commodity, categories);
+            }
+            default -> throw new IOException("Unknown write-ahead log record type " + type);
+        }
+    }
+
+    public void open() throws IOException {
+        synchronized (channelLock) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            committedSize = channel.size();
+        }
+
+        flusher = new Thread(() -> {
+            while (!closed) {
+                LockSupport.parkNanos(commitIntervalNanos);
+                try {
+                    flush();
+                } catch (IOException ignored) {
+                    // Kept in failure; the batch is retried next interval.
+                }
+            }
+        }, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Writes and fsyncs every record appended so far.
+    public void sync() throws IOException {
+        flush();
+        IOException failed = failure;
+        if (failed != null)
+            throw failed;
+    }
+
+    // Moves the records written so far aside before a snapshot is saved.
+    // Records appended from now on go to a fresh file; the snapshot contains
+    // at least the state of the rotated ones.
+    public void rotate() throws IOException {
+        synchronized (channelLock) {
+            flush();
+            channel.close();
+
+            if (Files.exists(rotatedPath)) {
+                // An earlier snapshot failed, so the older records are still needed.
+                try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+                     FileChannel target = FileChannel.open(rotatedPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    source.transferTo(0, source.size(), target);
+                    target.force(false);
+                }
+                Files.delete(path);
+            } else {
+                Files.move(path, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            DatabaseSnapshot.syncDirectory(path);
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            committedSize = channel.size();
+        }
+    }
+
+    // Drops the rotated records once the snapshot holding them is saved.
+    public void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        if (flusher != null)
+            LockSupport.unpark(flusher);
+
+        synchronized (channelLock) {
+            if (channel == null)
+                return;
+            try {
+                sync();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // The batch leaves the buffer only once it is fsynced. Whatever a failed
+    // attempt left in the file is cut off before the next one.
+    private void flush() throws IOException {
+        synchronized (channelLock) {
+            byte[] batch;
+            pendingLock.lock();
+            try {
+                if (pending.size() == 0)
+                    return;
+                batch = pending.toByteArray();
+            } finally {
+                pendingLock.unlock();
+            }
+
+            try {
+                if (!channel.isOpen())
+                    throw new IOException("Write-ahead log " + path + " is closed");
+                if (channel.size() != committedSize)
+                    channel.truncate(committedSize);
+
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(false);
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+                throw e;
+            }
+            committedSize += batch.length;
+
+            pendingLock.lock();
+            try {
+                byte[] all = pending.toByteArray();
+                pending.reset();
+                pending.write(all, batch.length, all.length - batch.length);
+            } finally {
+                pendingLock.unlock();
+            }
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private void append(byte type, RecordWriter writer) {
+        checkHealthy();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        byte[] frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+
+        pendingLock.lock();
+        try {
+            pending.writeBytes(frame);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    @Override
+    public void beforeChange() {
+        checkHealthy();
+    }
+
+    public void userAdded(User user) {
+        append(USER_ADDED, out -> DatabaseSnapshot.writeUser(out, user));
+    }
+
+    public void commentAdded(Comment comment) {
+        append(COMMENT_ADDED, out -> DatabaseSnapshot.writeComment(out, comment));
+    }
+
+    public void buyListItemChanged(User user, String commodityId) {
+        append(BUY_LIST_ITEM_CHANGED, out -> {
+            DatabaseSnapshot.writeString(out, user.getUsername());
+            DatabaseSnapshot.writeString(out, commodityId);
+            out.writeInt(user.getBuyList().getOrDefault(commodityId, 0));
+        });
+    }
+
+    // Logs a whole checkout as one record, so it is replayed entirely or not at all.
+    public void checkedOut(User user, Collection<String> purchasedIds, Collection<Commodity> commodities) {
+        append(CHECKED_OUT, out -> {
+            DatabaseSnapshot.writeString(out, user.getUsername());
+            out.writeFloat(user.getCredit());
+
+            out.writeInt(purchasedIds.size());
+            for (String id : purchasedIds) {
+                DatabaseSnapshot.writeString(out, id);
+                out.writeInt(user.getPurchasedList().getOrDefault(id, 0));
+            }
+            out.writeInt(commodities.size());
+            for (Commodity commodity : commodities) {
+                DatabaseSnapshot.writeString(out, commodity.getId());
+                out.writeInt(commodity.getInStock());
+            }
+        });
+    }
+
+    public void categoriesChanged(Commodity commodity) {
+        append(CATEGORIES_CHANGED, out -> {
+            DatabaseSnapshot.writeString(out, commodity.getId());
+            List<String> categories = commodity.getCategories();
+            out.writeInt(categories == null ? NULL_LENGTH : categories.size());
+            if (categories != null)
+                for (String category : categories)
+                    DatabaseSnapshot.writeString(out, category);
+        });
+    }
+
+    @Override
+    public void creditAdded(User user) {
+        append(CREDIT_ADDED, out -> {
+            DatabaseSnapshot.writeString(out, user.getUsername());
+            out.writeFloat(user.getCredit());
+        });
+    }
+
+    @Override
+    public void commodityRated(Commodity commodity, String username, int score) {
+        append(COMMODITY_RATED, out -> {
+            DatabaseSnapshot.writeString(out, commodity.getId());
+            DatabaseSnapshot.writeString(out, username);
+            out.writeInt(score);
+        });
+    }
+
+    @Override
+    public void commentVoted(Comment comment, String username, String vote) {
+        append(COMMENT_VOTED, out -> {
+            out.writeInt(comment.getId());
+            DatabaseSnapshot.writeString(out, username);
+            DatabaseSnapshot.writeString(out, vote);
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package exceptions;
+
+import static defines.Errors.INVALID_PAGE_RANGE;
+
+public class InvalidPageRange extends Exception {
+    public InvalidPageRange() {
+        super(INVALID_PAGE_RANGE);
+    }
+}
@@ -1,13 +1,14 @@
 package model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Getter
@@ -22,9 +23,22 @@ public class Comment {
     private String text;
     private String date;
 
-    private int like;
-    private int dislike;
-    private Map<String, String> userVote = new HashMap<>();
+    private volatile int like;
+    private volatile int dislike;
+
+    // Vote codes by username, with the number of each kind kept alongside, so
+    // a vote costs O(1) however many users voted before. All of them change
+    // only under the comment's lock. The usernames are kept by this map only.
+    private final StringIntMap userVote = new StringIntMap();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int likeVotes;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int dislikeVotes;
+
+    @JsonIgnore
+    private MutationListener mutationListener;
 
     public Comment(int id, String userEmail, String username, int commodityId, String text) {
         this.id = id;
@@ -41,21 +55,50 @@ public class Comment {
         return dateFormat.format(currentDate);
     }
 
-    public void addUserVote(String userName, String vote) throws IllegalArgumentException {
-        String[] validVotes = new String[]{"like", "dislike"};
-        if (!Arrays.asList(validVotes).contains(vote))
+    // A copy by name, "like" or "dislike", the same as the JSON.
+    public synchronized Map<String, String> getUserVote() {
+        Map<String, String> votes = new LinkedHashMap<>();
+        userVote.forEachInt((username, code) -> votes.put(username, Vote.ofCode(code).getName()));
+        return votes;
+    }
+
+    // Entries that are neither a like nor a dislike are left out.
+    public synchronized void setUserVote(Map<String, String> userVote) {
+        this.userVote.clear();
+        this.likeVotes = 0;
+        this.dislikeVotes = 0;
+        userVote.forEach((username, name) -> {
+            Vote vote = Vote.of(name);
+            if (vote != null)
+                count(this.userVote.putInt(username, vote.getCode(), Vote.NONE), vote.getCode());
+        });
+    }
+
+    public synchronized void addUserVote(String userName, String vote) throws IllegalArgumentException {
+        Vote parsed = Vote.of(vote);
+        if (parsed == null)
             throw new IllegalArgumentException("Invalid vote type");
+        if (mutationListener != null)
+            mutationListener.beforeChange();
 
-        userVote.put(userName, vote);
+        count(userVote.putInt(userName, parsed.getCode(), Vote.NONE), parsed.getCode());
+
+        this.like = likeVotes;
+        this.dislike = dislikeVotes;
+        if (mutationListener != null)
+            mutationListener.commentVoted(this, userName, vote);
+    }
 
-        this.like = 0;
-        this.dislike = 0;
+    // Moves one vote from the previous kind, if any, to the new one.
+    private void count(int previousCode, int code) {
+        if (previousCode == Vote.LIKE.getCode())
+            likeVotes--;
+        else if (previousCode == Vote.DISLIKE.getCode())
+            dislikeVotes--;
 
-        for (String key : userVote.keySet()) {
-            if (userVote.get(key).equals("like"))
-                this.like += 1;
-            else if (userVote.get(key).equals("dislike"))
-                this.dislike += 1;
-        }
+        if (code == Vote.LIKE.getCode())
+            likeVotes++;
+        else
+            dislikeVotes++;
     }
 }
@@ -1,11 +1,13 @@
 package model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import exceptions.NotInStock;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 
 @Getter
@@ -16,32 +18,100 @@ public class Commodity {
     private String providerId;
     private int price;
     private ArrayList<String> categories = new ArrayList<>();
-    private float rating;
-    private int inStock;
+    private volatile float rating;
+    private volatile int inStock;
     private String image;
 
-    private Map<String, Integer> userRate = new HashMap<>();
+    // Scores by username, with the sum of the scores kept alongside, so a
+    // rating costs O(1) however many users rated before. Both change only
+    // under the commodity's lock. The usernames are kept by this map only.
+    private final StringIntMap userRate = new StringIntMap();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long userRateSum;
     private float initRate;
 
-    public void updateInStock(int amount) throws NotInStock {
+    @JsonIgnore
+    private RatingListener ratingListener;
+
+    @JsonIgnore
+    private MutationListener mutationListener;
+
+    // The updated copy a catalog reload published in place of this record.
+    // Ratings that still reach this record through an older reference go on
+    // to the copy, so none is lost.
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Commodity successor;
+
+    // Read-only, changes have to go through addRate to keep the sum right.
+    public Map<String, Integer> getUserRate() {
+        return Collections.unmodifiableMap(userRate);
+    }
+
+    public synchronized void setUserRate(Map<String, Integer> userRate) {
+        this.userRate.assign(userRate);
+        long[] sum = {0};
+        this.userRate.forEachInt((username, score) -> sum[0] += score);
+        this.userRateSum = sum[0];
+    }
+
+    public synchronized void updateInStock(int amount) throws NotInStock {
         if ((this.inStock + amount) < 0)
             throw new NotInStock();
         this.inStock += amount;
     }
 
+    // The record that holds this commodity's ratings and stock now.
+    @JsonIgnore
+    public Commodity getLatest() {
+        Commodity latest = this;
+        while (latest.successor != null)
+            latest = latest.successor;
+
+        return latest;
+    }
+
+    // Called by the catalog, holding this record's lock while it copies the
+    // ratings and stock over to the successor.
+    public synchronized void replaceWith(Commodity successor) {
+        this.successor = successor;
+    }
+
     public void addRate(String username, int score) throws IllegalArgumentException {
         if (score < 1 || score > 10)
             throw new IllegalArgumentException("Invalid score, Score must be between 1 and 10");
-        userRate.put(username, score);
-        this.calcRating();
-    }
+        if (mutationListener != null)
+            mutationListener.beforeChange();
 
-    private void calcRating() {
-        float sum = 0;
-        for (Map.Entry<String, Integer> entry : this.userRate.entrySet()) {
-            sum += entry.getValue();
+        float previousRating = 0;
+        float newRating = 0;
+        Commodity replacement;
+        synchronized (this) {
+            replacement = successor;
+            if (replacement == null) {
+                previousRating = this.rating;
+                // Scores start at 1, so 0 stands for no earlier score.
+                userRateSum += score - userRate.putInt(username, score, 0);
+                this.calcRating();
+                newRating = this.rating;
+                if (mutationListener != null)
+                    mutationListener.commodityRated(this, username, score);
+            }
         }
 
-        this.rating = ((this.initRate + sum) / (this.userRate.size() + 1));
+        if (replacement != null) {
+            replacement.addRate(username, score);
+            return;
+        }
+
+        // Listeners run outside the lock, they may read other commodities.
+        if (ratingListener != null && newRating != previousRating)
+            ratingListener.ratingChanged(this, previousRating);
+    }
+
+    private void calcRating() {
+        this.rating = ((this.initRate + this.userRateSum) / (this.userRate.size() + 1));
     }
 }
@@ -0,0 +1,49 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns commodity IDs as small ints, so per-user maps hold an int for each
+// entry instead of a String, and never hash the String again. Keys start at 1
+// and are never released; there is one for every commodity ID ever seen.
+final class CommodityKeys {
+    static final int MISSING = 0;
+
+    private static final ConcurrentHashMap<String, Integer> keys = new ConcurrentHashMap<>();
+    private static volatile String[] ids = new String[1024];
+    private static int count;
+
+    private CommodityKeys() {
+    }
+
+    static int keyOf(String id) {
+        Integer key = keys.get(id);
+        return key != null ? key : intern(id);
+    }
+
+    // Key of an ID that was interned before, or MISSING; lookups use this so
+    // they do not intern every ID they are asked about.
+    static int find(String id) {
+        Integer key = keys.get(id);
+        return key != null ? key : MISSING;
+    }
+
+    static String idOf(int key) {
+        return ids[key];
+    }
+
+    // The ID is stored before its key is published through the map, so any
+    // thread that got the key can read the ID back.
+    private static synchronized int intern(String id) {
+        Integer key = keys.get(id);
+        if (key != null)
+            return key;
+
+        int next = ++count;
+        if (next == ids.length)
+            ids = Arrays.copyOf(ids, next * 2);
+        ids[next] = id;
+        keys.put(id, next);
+        return next;
+    }
+}
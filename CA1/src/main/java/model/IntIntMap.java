@@ -0,0 +1,202 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Map from int to int kept in two arrays with linear probing, so an entry
+// costs two ints instead of a node and two boxed Integers, and an empty map
+// holds no arrays at all. Slot key 0 marks a free slot; the entry for key 0,
+// if any, is kept aside. Methods synchronize on the map, as request threads
+// update it while others serialize it. The Map methods box and are there for
+// callers and Jackson; the int methods below do not.
+public class IntIntMap extends AbstractMap<Integer, Integer> {
+    public interface Consumer {
+        void accept(int key, int value);
+    }
+
+    private static final int[] NO_SLOTS = new int[0];
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] keys = NO_SLOTS;
+    private int[] values = NO_SLOTS;
+    private int occupied;
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    private static int slotOf(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // Slot of a non-zero key, or -1 when it is missing.
+    private int find(int key) {
+        if (keys.length == 0)
+            return -1;
+
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); keys[slot] != 0; slot = (slot + 1) & mask)
+            if (keys[slot] == key)
+                return slot;
+
+        return -1;
+    }
+
+    public synchronized boolean containsInt(int key) {
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    public synchronized int getInt(int key, int defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public synchronized void putInt(int key, int value) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+
+        if ((occupied + 1) * 4 > keys.length * 3)
+            resize(Math.max(MIN_CAPACITY, keys.length * 2));
+        insert(key, value);
+        occupied++;
+    }
+
+    // Adds delta to the key's value, a missing key counting as 0, and returns
+    // the sum.
+    public synchronized int addTo(int key, int delta) {
+        int sum = getInt(key, 0) + delta;
+        putInt(key, sum);
+        return sum;
+    }
+
+    public synchronized boolean removeInt(int key) {
+        if (key == 0) {
+            boolean had = hasZeroKey;
+            hasZeroKey = false;
+            return had;
+        }
+
+        int slot = find(key);
+        if (slot < 0)
+            return false;
+
+        removeAt(slot);
+        return true;
+    }
+
+    public synchronized void forEachInt(Consumer consumer) {
+        if (hasZeroKey)
+            consumer.accept(0, zeroValue);
+        for (int slot = 0; slot < keys.length; slot++)
+            if (keys[slot] != 0)
+                consumer.accept(keys[slot], values[slot]);
+    }
+
+    // Replaces the whole content, as one step for concurrent readers.
+    public synchronized void assign(Map<Integer, Integer> entries) {
+        clear();
+        entries.forEach(this::putInt);
+    }
+
+    private void insert(int key, int value) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != 0)
+            slot = (slot + 1) & mask;
+
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        for (int slot = 0; slot < oldKeys.length; slot++)
+            if (oldKeys[slot] != 0)
+                insert(oldKeys[slot], oldValues[slot]);
+    }
+
+    // Shifts later entries of the probe run back into the freed slot, so
+    // lookups never need tombstones.
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int free = slot;
+        for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            boolean movable = free <= next ? home <= free || home > next : home <= free && home > next;
+            if (movable) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+
+        keys[free] = 0;
+        occupied--;
+    }
+
+    @Override
+    public synchronized int size() {
+        return occupied + (hasZeroKey ? 1 : 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && containsInt((Integer) key);
+    }
+
+    @Override
+    public synchronized Integer get(Object key) {
+        if (!(key instanceof Integer) || !containsInt((Integer) key))
+            return null;
+
+        return getInt((Integer) key, 0);
+    }
+
+    @Override
+    public synchronized Integer put(Integer key, Integer value) {
+        Integer previous = get(key);
+        putInt(key, value);
+        return previous;
+    }
+
+    @Override
+    public synchronized Integer remove(Object key) {
+        Integer previous = get(key);
+        if (previous != null)
+            removeInt((Integer) key);
+
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        keys = NO_SLOTS;
+        values = NO_SLOTS;
+        occupied = 0;
+        hasZeroKey = false;
+    }
+
+    // A copy, so callers can iterate it while the map changes.
+    @Override
+    public synchronized Set<Entry<Integer, Integer>> entrySet() {
+        Set<Entry<Integer, Integer>> entries = new LinkedHashSet<>();
+        forEachInt((key, value) -> entries.add(new SimpleImmutableEntry<>(key, value)));
+        return entries;
+    }
+}
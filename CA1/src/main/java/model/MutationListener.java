@@ -0,0 +1,17 @@
+package model;
+
+// Told about the changes request handlers make to models directly. Called
+// while the model is still locked, so calls for one model arrive in the order
+// its changes were made.
+public interface MutationListener {
+    // Called before a change is made; throws when it could not be recorded,
+    // so the change is refused instead of made unrecorded.
+    default void beforeChange() {
+    }
+
+    void creditAdded(User user);
+
+    void commodityRated(Commodity commodity, String username, int score);
+
+    void commentVoted(Comment comment, String username, String vote);
+}
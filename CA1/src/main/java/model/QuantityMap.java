@@ -0,0 +1,68 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Quantities by commodity ID, stored as an IntIntMap over interned commodity
+// keys. It reads and serializes as a Map<String, Integer>, so the JSON is the
+// same as with a HashMap.
+public class QuantityMap extends AbstractMap<String, Integer> {
+    private final IntIntMap quantities = new IntIntMap();
+
+    public int getQuantity(String id) {
+        return quantities.getInt(CommodityKeys.find(id), 0);
+    }
+
+    // Adds delta to the quantity of the commodity and returns the new quantity.
+    public int add(String id, int delta) {
+        return quantities.addTo(CommodityKeys.keyOf(id), delta);
+    }
+
+    public void assign(Map<String, Integer> entries) {
+        synchronized (quantities) {
+            quantities.clear();
+            entries.forEach((id, quantity) -> quantities.putInt(CommodityKeys.keyOf(id), quantity));
+        }
+    }
+
+    @Override
+    public int size() {
+        return quantities.size();
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return id instanceof String && quantities.containsInt(CommodityKeys.find((String) id));
+    }
+
+    @Override
+    public Integer get(Object id) {
+        return id instanceof String ? quantities.get(CommodityKeys.find((String) id)) : null;
+    }
+
+    @Override
+    public Integer put(String id, Integer quantity) {
+        return quantities.put(CommodityKeys.keyOf(id), quantity);
+    }
+
+    @Override
+    public Integer remove(Object id) {
+        return id instanceof String ? quantities.remove(CommodityKeys.find((String) id)) : null;
+    }
+
+    @Override
+    public void clear() {
+        quantities.clear();
+    }
+
+    // A copy, so callers can iterate it while the map changes.
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+        Set<Entry<String, Integer>> entries = new LinkedHashSet<>();
+        quantities.forEachInt((key, quantity) ->
+                entries.add(new SimpleImmutableEntry<>(CommodityKeys.idOf(key), quantity)));
+        return entries;
+    }
+}
@@ -0,0 +1,5 @@
+package model;
+
+public interface RatingListener {
+    void ratingChanged(Commodity commodity, float previousRating);
+}
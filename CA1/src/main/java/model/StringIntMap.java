@@ -0,0 +1,201 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Map from String to int kept in two arrays with linear probing, so an entry
+// costs a reference and an int instead of a node and a boxed Integer. Keys
+// belong to the map alone and go with it, so it suits keys that come from
+// requests, such as usernames. A null slot marks a free slot; the entry for
+// the null key, if any, is kept aside. Methods synchronize on the map, like
+// IntIntMap, and the Map methods box while the int methods below do not.
+public class StringIntMap extends AbstractMap<String, Integer> {
+    public interface Consumer {
+        void accept(String key, int value);
+    }
+
+    private static final String[] NO_KEYS = new String[0];
+    private static final int[] NO_VALUES = new int[0];
+    private static final int MIN_CAPACITY = 4;
+
+    private String[] keys = NO_KEYS;
+    private int[] values = NO_VALUES;
+    private int occupied;
+    private boolean hasNullKey;
+    private int nullValue;
+
+    private static int slotOf(String key, int mask) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // Slot of a non-null key, or -1 when it is missing.
+    private int find(String key) {
+        if (keys.length == 0)
+            return -1;
+
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); keys[slot] != null; slot = (slot + 1) & mask)
+            if (keys[slot].equals(key))
+                return slot;
+
+        return -1;
+    }
+
+    public synchronized boolean containsString(String key) {
+        return key == null ? hasNullKey : find(key) >= 0;
+    }
+
+    public synchronized int getInt(String key, int defaultValue) {
+        if (key == null)
+            return hasNullKey ? nullValue : defaultValue;
+
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    // Stores the value and returns the previous one, or defaultValue when the
+    // key was missing.
+    public synchronized int putInt(String key, int value, int defaultValue) {
+        if (key == null) {
+            int previous = hasNullKey ? nullValue : defaultValue;
+            hasNullKey = true;
+            nullValue = value;
+            return previous;
+        }
+
+        int slot = find(key);
+        if (slot >= 0) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        if ((occupied + 1) * 4 > keys.length * 3)
+            resize(Math.max(MIN_CAPACITY, keys.length * 2));
+        insert(key, value);
+        occupied++;
+        return defaultValue;
+    }
+
+    public synchronized boolean removeString(String key) {
+        if (key == null) {
+            boolean had = hasNullKey;
+            hasNullKey = false;
+            return had;
+        }
+
+        int slot = find(key);
+        if (slot < 0)
+            return false;
+
+        removeAt(slot);
+        return true;
+    }
+
+    public synchronized void forEachInt(Consumer consumer) {
+        if (hasNullKey)
+            consumer.accept(null, nullValue);
+        for (int slot = 0; slot < keys.length; slot++)
+            if (keys[slot] != null)
+                consumer.accept(keys[slot], values[slot]);
+    }
+
+    // Replaces the whole content, as one step for concurrent readers.
+    public synchronized void assign(Map<String, Integer> entries) {
+        clear();
+        entries.forEach((key, value) -> putInt(key, value, 0));
+    }
+
+    private void insert(String key, int value) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != null)
+            slot = (slot + 1) & mask;
+
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[capacity];
+        values = new int[capacity];
+        for (int slot = 0; slot < oldKeys.length; slot++)
+            if (oldKeys[slot] != null)
+                insert(oldKeys[slot], oldValues[slot]);
+    }
+
+    // Shifts later entries of the probe run back into the freed slot, so
+    // lookups never need tombstones.
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int free = slot;
+        for (int next = (slot + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            boolean movable = free <= next ? home <= free || home > next : home <= free && home > next;
+            if (movable) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+
+        keys[free] = null;
+        occupied--;
+    }
+
+    @Override
+    public synchronized int size() {
+        return occupied + (hasNullKey ? 1 : 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (key == null || key instanceof String) && containsString((String) key);
+    }
+
+    @Override
+    public synchronized Integer get(Object key) {
+        if (!containsKey(key))
+            return null;
+
+        return getInt((String) key, 0);
+    }
+
+    @Override
+    public synchronized Integer put(String key, Integer value) {
+        Integer previous = get(key);
+        putInt(key, Objects.requireNonNull(value), 0);
+        return previous;
+    }
+
+    @Override
+    public synchronized Integer remove(Object key) {
+        Integer previous = get(key);
+        if (previous != null)
+            removeString((String) key);
+
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        keys = NO_KEYS;
+        values = NO_VALUES;
+        occupied = 0;
+        hasNullKey = false;
+    }
+
+    // A copy, so callers can iterate it while the map changes.
+    @Override
+    public synchronized Set<Entry<String, Integer>> entrySet() {
+        Set<Entry<String, Integer>> entries = new LinkedHashSet<>();
+        forEachInt((key, value) -> entries.add(new SimpleImmutableEntry<>(key, value)));
+        return entries;
+    }
+}
@@ -1,11 +1,11 @@
 package model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import exceptions.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import static defines.Errors.COMMODITY_IS_NOT_IN_STOCK;
@@ -19,11 +19,18 @@ public class User {
     private String email;
     private String birthDate;
     private String address;
-    private float credit;
+    private volatile float credit;
 
-    private Map<Integer, Integer> commoditiesRates = new HashMap<>();
-    private Map<String, Integer> buyList = new HashMap<>();
-    private Map<String, Integer> purchasedList = new HashMap<>();
+    // Request threads mutate these through the synchronized methods below while
+    // others serialize them, so the maps synchronize on themselves. They keep
+    // primitive ints, and the commodity IDs interned, since every user holds
+    // three of them.
+    private final IntIntMap commoditiesRates = new IntIntMap();
+    private final QuantityMap buyList = new QuantityMap();
+    private final QuantityMap purchasedList = new QuantityMap();
+
+    @JsonIgnore
+    private MutationListener mutationListener;
 
     public User(String username, String password, String email, String birthDate, String address) {
         this.username = username;
@@ -33,14 +40,42 @@ public class User {
         this.address = address;
     }
 
-    public void addCredit(float amount) throws InvalidCreditRange {
+    public Map<Integer, Integer> getCommoditiesRates() {
+        return commoditiesRates;
+    }
+
+    public Map<String, Integer> getBuyList() {
+        return buyList;
+    }
+
+    public Map<String, Integer> getPurchasedList() {
+        return purchasedList;
+    }
+
+    public void setCommoditiesRates(Map<Integer, Integer> commoditiesRates) {
+        this.commoditiesRates.assign(commoditiesRates);
+    }
+
+    public void setBuyList(Map<String, Integer> buyList) {
+        this.buyList.assign(buyList);
+    }
+
+    public void setPurchasedList(Map<String, Integer> purchasedList) {
+        this.purchasedList.assign(purchasedList);
+    }
+
+    public synchronized void addCredit(float amount) throws InvalidCreditRange {
         if (amount < 0)
             throw new InvalidCreditRange();
+        if (mutationListener != null)
+            mutationListener.beforeChange();
 
         this.credit += amount;
+        if (mutationListener != null)
+            mutationListener.creditAdded(this);
     }
 
-    public void withdrawCredit(float amount) throws InsufficientCredit, InvalidWithdrawAmount {
+    public synchronized void withdrawCredit(float amount) throws InsufficientCredit, InvalidWithdrawAmount {
         if (amount > this.credit)
             throw new InsufficientCredit();
 
@@ -51,35 +86,26 @@ public class User {
         this.credit -= amount;
     }
 
-    public void addBuyItem(Commodity commodity) throws NotInStock {
+    public synchronized void addBuyItem(Commodity commodity) throws NotInStock {
         String id = commodity.getId();
         if (commodity.getInStock() == 0)
             throw new NotInStock();
-        if (this.buyList.containsKey(id)) {
-            int existingQuantity = this.buyList.get(id);
-            this.buyList.put(id, existingQuantity + 1);
-        } else
-            this.buyList.put(id, 1);
+        this.buyList.add(id, 1);
     }
 
-    public void addPurchasedItem(String id, int quantity) throws InvalidQuantity {
+    public synchronized void addPurchasedItem(String id, int quantity) throws InvalidQuantity {
         if (quantity <= 0)
             throw new InvalidQuantity();
-        if (this.purchasedList.containsKey(id)) {
-            int existingQuantity = this.purchasedList.get(id);
-            this.purchasedList.put(id, existingQuantity + quantity);
-        } else
-            this.purchasedList.put(id, quantity);
+        this.purchasedList.add(id, quantity);
     }
 
-    public void removeItemFromBuyList(Commodity commodity) throws CommodityIsNotInBuyList {
+    public synchronized void removeItemFromBuyList(Commodity commodity) throws CommodityIsNotInBuyList {
         String id = commodity.getId();
         if (this.buyList.containsKey(id)) {
-            int existingQuantity = this.buyList.get(id);
-            if (existingQuantity == 1)
-                this.buyList.remove(commodity.getId());
+            if (this.buyList.getQuantity(id) == 1)
+                this.buyList.remove(id);
             else
-                this.buyList.put(id, existingQuantity - 1);
+                this.buyList.add(id, -1);
         } else
             throw new CommodityIsNotInBuyList();
     }
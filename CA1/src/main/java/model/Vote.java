@@ -0,0 +1,42 @@
+package model;
+
+// A user's vote on a comment. The code is what Comment stores per user; 0 is
+// left for no vote.
+public enum Vote {
+    LIKE("like", 1),
+    DISLIKE("dislike", 2);
+
+    static final int NONE = 0;
+
+    private final String name;
+    private final int code;
+
+    Vote(String name, int code) {
+        this.name = name;
+        this.code = code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    // The vote with the given name, or null when there is none.
+    public static Vote of(String name) {
+        if (name == null)
+            return null;
+
+        return switch (name) {
+            case "like" -> LIKE;
+            case "dislike" -> DISLIKE;
+            default -> null;
+        };
+    }
+
+    static Vote ofCode(int code) {
+        return code == LIKE.code ? LIKE : code == DISLIKE.code ? DISLIKE : null;
+    }
+}
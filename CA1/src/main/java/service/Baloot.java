@@ -1,21 +1,49 @@
 package service;
 
+import database.CatalogWatcher;
 import database.DataParser;
 import database.Database;
+import database.DatabaseSnapshot;
+import database.StockLocks;
+import database.WriteAheadLog;
 import model.Comment;
 import model.Commodity;
 import model.Provider;
 import model.User;
 import exceptions.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 
 public class Baloot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Baloot.class);
+    public static final int MAX_NUMBER_OF_COMMODITY_SUGGESTIONS = 4;
+    private static final int SIMILAR_CATEGORY_SCORE = 11;
+
     private static Baloot instance;
 
+    private final SuggestionCache suggestionCache = new SuggestionCache(this, MAX_NUMBER_OF_COMMODITY_SUGGESTIONS);
+    private volatile WriteAheadLog writeAheadLog;
+    private volatile CatalogWatcher catalogWatcher;
+    // Set when startup replayed the log, so enabling the log does not replay
+    // it again over the catalog files applied after it.
+    private Path replayedLogPath;
+    // Whether startup applied catalog files that no snapshot holds yet.
+    private boolean catalogChangedSinceSnapshot;
+
     private Baloot() {
+        Database.getInstance().addCatalogListener(suggestionCache);
         fetchAndStoreData();
     }
 
@@ -26,19 +54,185 @@ public class Baloot {
         return instance;
     }
 
+    // Restores the snapshot when there is a usable one. Otherwise the four
+    // tables, which have their own locks and indexes, load from JSON in
+    // parallel, so startup waits only for the largest file.
     public void fetchAndStoreData() {
         DataParser dataParser = new DataParser(Database.getInstance());
+        if (restoreSnapshot(new DatabaseSnapshot(Database.getInstance()), new WriteAheadLog(), dataParser))
+            return;
+
+        List<Callable<Void>> loaders = List.of(
+                () -> { dataParser.getUsersList(); return null; },
+                () -> { dataParser.getProvidersList(); return null; },
+                () -> { dataParser.getCommoditiesList(); return null; },
+                () -> { dataParser.getCommentsList(); return null; });
 
+        ExecutorService executor = Executors.newFixedThreadPool(loaders.size());
         try {
-            dataParser.getUsersList();
-            dataParser.getProvidersList();
-            dataParser.getCommoditiesList();
-            dataParser.getCommentsList();
-        } catch (IOException e) {
+            for (Future<Void> loader : executor.invokeAll(loaders))
+                loader.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
         }
     }
 
+    // Restores the snapshot, replays the changes logged since, then applies
+    // commodities.json and providers.json if they changed after the snapshot.
+    // The files come last as they were edited after every logged change, and
+    // go through the reload diff, so buy lists, ratings and sales stay.
+    // users.json and comments.json only seed an empty service: the snapshot
+    // holds the users and comments since, so a newer one is reported and
+    // left out.
+    boolean restoreSnapshot(DatabaseSnapshot snapshot, WriteAheadLog log, DataParser dataParser) {
+        replayedLogPath = null;
+        catalogChangedSinceSnapshot = false;
+        try {
+            if (!snapshot.load())
+                return false;
+        } catch (IOException ignored) {
+            // A damaged snapshot is overwritten by the next save.
+            return false;
+        }
+
+        try {
+            log.replay(Database.getInstance());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        replayedLogPath = log.getPath();
+
+        for (String fileName : List.of(DataParser.USERS_FILE, DataParser.COMMENTS_FILE)) {
+            Path file = dataParser.getDataDirectory().resolve(fileName);
+            try {
+                if (!snapshot.isNewerThan(List.of(file)))
+                    LOGGER.warn("{} changed after the snapshot {} was saved and is not applied; "
+                            + "delete the snapshot to load it", file, snapshot.getPath());
+            } catch (IOException ignored) {
+            }
+        }
+
+        for (String fileName : List.of(DataParser.PROVIDERS_FILE, DataParser.COMMODITIES_FILE)) {
+            Path file = dataParser.getDataDirectory().resolve(fileName);
+            try {
+                if (!snapshot.isNewerThan(List.of(file)))
+                    catalogChangedSinceSnapshot |= reloadCatalog(dataParser, fileName);
+            } catch (IOException e) {
+                // The database is untouched; the catalog watcher applies the
+                // next version of the file.
+                LOGGER.warn("{} changed after the snapshot {} was saved but could not be applied",
+                        file, snapshot.getPath(), e);
+            }
+        }
+        return true;
+    }
+
+    // With the write-ahead log on, the records written so far are set aside
+    // first and dropped only once the snapshot holding their changes is on
+    // disk: save returns after fsyncing the file and its directory.
+    public void saveSnapshot() throws IOException {
+        WriteAheadLog log = writeAheadLog;
+        if (log != null)
+            log.rotate();
+
+        new DatabaseSnapshot(Database.getInstance()).save();
+        if (log != null)
+            log.discardRotated();
+    }
+
+    // Replays the changes logged since the last snapshot, unless startup
+    // did, then logs every further change.
+    public void enableWriteAheadLog() throws IOException {
+        if (writeAheadLog != null)
+            return;
+
+        WriteAheadLog log = new WriteAheadLog();
+        if (!log.getPath().equals(replayedLogPath))
+            log.replay(Database.getInstance());
+        log.open();
+        Database.getInstance().setMutationListener(log);
+        writeAheadLog = log;
+
+        // The replayed records predate the catalog files applied at startup,
+        // so a snapshot replaces both before they could be replayed again.
+        if (catalogChangedSinceSnapshot) {
+            saveSnapshot();
+            catalogChangedSinceSnapshot = false;
+        }
+    }
+
+    public void closeWriteAheadLog() throws IOException {
+        WriteAheadLog log = writeAheadLog;
+        if (log == null)
+            return;
+
+        Database.getInstance().setMutationListener(null);
+        writeAheadLog = null;
+        log.close();
+    }
+
+    // Applies commodities.json and providers.json again whenever they change on
+    // disk, keeping buy lists and ratings.
+    public void enableCatalogReload() throws IOException {
+        if (catalogWatcher != null)
+            return;
+
+        DataParser dataParser = new DataParser(Database.getInstance());
+        CatalogWatcher watcher = new CatalogWatcher(dataParser.getDataDirectory(),
+                Set.of(DataParser.COMMODITIES_FILE, DataParser.PROVIDERS_FILE),
+                fileName -> reloadCatalogFile(dataParser, fileName));
+        watcher.start();
+        catalogWatcher = watcher;
+    }
+
+    public void closeCatalogReload() throws IOException {
+        CatalogWatcher watcher = catalogWatcher;
+        if (watcher == null)
+            return;
+
+        catalogWatcher = null;
+        watcher.close();
+    }
+
+    private void reloadCatalogFile(DataParser dataParser, String fileName) throws IOException {
+        boolean changed = reloadCatalog(dataParser, fileName);
+
+        // Logged category changes may predate the new file; a snapshot
+        // taken now supersedes both them and the file on the next start.
+        if (changed && writeAheadLog != null)
+            saveSnapshot();
+    }
+
+    private static boolean reloadCatalog(DataParser dataParser, String fileName) throws IOException {
+        return fileName.equals(DataParser.COMMODITIES_FILE)
+                ? dataParser.reloadCommodities()
+                : dataParser.reloadProviders();
+    }
+
+    // The write-ahead log's failure, or null while it is off or healthy.
+    public IOException getWriteAheadLogFailure() {
+        WriteAheadLog log = writeAheadLog;
+        return log == null ? null : log.getFailure();
+    }
+
+    // Refuses a change before it is made when the log could not record it.
+    private void checkWritable() {
+        WriteAheadLog log = writeAheadLog;
+        if (log != null)
+            log.checkHealthy();
+    }
+
+    private void log(Consumer<WriteAheadLog> record) {
+        WriteAheadLog log = writeAheadLog;
+        if (log != null)
+            record.accept(log);
+    }
+
     public void login(String userId, String password) throws NotExistentUser, IncorrectPassword {
         User user = this.getUserById(userId);
         if (!user.getPassword().equals(password))
@@ -49,8 +243,12 @@ public class Baloot {
             throws NotExistentUser, NotExistentCommodity, AlreadyInBuyList, NotInStock {
         User user = getUserById(userId);
         Commodity commodity = getCommodityById(commodityId);
+        checkWritable();
 
-        user.addBuyItem(commodity);
+        synchronized (user) {
+            user.addBuyItem(commodity);
+            log(log -> log.buyListItemChanged(user, commodityId));
+        }
     }
 
     public void removeCommodityFromUserBuyList(String userId, String commodityId)
@@ -62,8 +260,12 @@ public class Baloot {
 
         User user = getUserById(userId);
         Commodity commodity = getCommodityById(commodityId);
+        checkWritable();
 
-        user.removeItemFromBuyList(commodity);
+        synchronized (user) {
+            user.removeItemFromBuyList(commodity);
+            log(log -> log.buyListItemChanged(user, commodityId));
+        }
     }
 
     public float getCurrentBuyListPrice(User user) {
@@ -79,46 +281,88 @@ public class Baloot {
         return total;
     }
 
+    // A checkout validates the whole buy list before changing anything, with
+    // only the stock stripes of the commodities involved locked, see
+    // StockLocks. The checks run in the order they always did: the credit
+    // for the whole list first, then each item's quantity and stock.
     public void withdrawPayableAmount(User user) throws InsufficientCredit, NotInStock, InvalidQuantity, InvalidWithdrawAmount {
-        float amount = getCurrentBuyListPrice(user);
-        user.withdrawCredit(amount);
-
-        for (var entry : new ArrayList<>(user.getBuyList().entrySet())) {
-            user.addPurchasedItem(entry.getKey(), entry.getValue());
+        checkWritable();
+        synchronized (user) {
+            Map<String, Integer> buyList = new LinkedHashMap<>(user.getBuyList());
+            StockLocks stockLocks = Database.getInstance().getStockLocks();
+            int[] stripes = stockLocks.lockIds(buyList.keySet());
             try {
-                Commodity commodity = getCommodityById(entry.getKey());
-                commodity.updateInStock(-entry.getValue());
-            } catch (NotExistentCommodity ignored) {
-            } catch (NotInStock e) {
-                throw new NotInStock();
+                Map<String, Commodity> commodities = new LinkedHashMap<>();
+                for (String id : buyList.keySet()) {
+                    Commodity commodity = Database.getInstance().findCommodity(id);
+                    if (commodity != null)
+                        commodities.put(id, commodity);
+                }
+
+                float amount = 0;
+                for (var item : commodities.entrySet())
+                    amount += item.getValue().getPrice() * buyList.get(item.getKey());
+                if (amount > user.getCredit())
+                    throw new InsufficientCredit();
+                if (amount < 0)
+                    throw new InvalidWithdrawAmount();
+
+                for (var entry : buyList.entrySet()) {
+                    if (entry.getValue() <= 0)
+                        throw new InvalidQuantity();
+                    Commodity commodity = commodities.get(entry.getKey());
+                    if (commodity != null && commodity.getInStock() < entry.getValue())
+                        throw new NotInStock();
+                }
+
+                user.withdrawCredit(amount);
+
+                for (var item : commodities.entrySet())
+                    item.getValue().updateInStock(-buyList.get(item.getKey()));
+                for (var entry : buyList.entrySet())
+                    user.addPurchasedItem(entry.getKey(), entry.getValue());
+                user.setBuyList(new HashMap<>());
+
+                // Logged before the stripes are released, so checkouts of the
+                // same commodity are logged in the order they took its stock.
+                log(log -> log.checkedOut(user, buyList.keySet(), commodities.values()));
+            } finally {
+                stockLocks.unlock(stripes);
             }
         }
-
-        user.setBuyList(new HashMap<>());
     }
 
     public User getUserById(String userId) throws NotExistentUser {
-        for (User user : Database.getInstance().getUsers())
-            if (user.getUsername().equals(userId))
-                return user;
+        User user = Database.getInstance().findUser(userId);
+        if (user == null)
+            throw new NotExistentUser();
 
-        throw new NotExistentUser();
+        return user;
     }
 
     public Provider getProviderById(String providerId) throws NotExistentProvider {
-        for (Provider provider : Database.getInstance().getProviders())
-            if (Objects.equals(provider.getId(), providerId))
-                return provider;
+        Provider provider = Database.getInstance().findProvider(providerId);
+        if (provider == null)
+            throw new NotExistentProvider();
 
-        throw new NotExistentProvider();
+        return provider;
     }
 
     public Commodity getCommodityById(String commodityId) throws NotExistentCommodity {
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getId(), commodityId))
-                return commodity;
+        Commodity commodity = Database.getInstance().findCommodity(commodityId);
+        if (commodity == null)
+            throw new NotExistentCommodity();
 
-        throw new NotExistentCommodity();
+        return commodity;
+    }
+
+    public void updateCommodityCategories(String commodityId, ArrayList<String> categories) throws NotExistentCommodity {
+        Commodity commodity = getCommodityById(commodityId);
+        checkWritable();
+        synchronized (commodity) {
+            Database.getInstance().updateCommodityCategories(commodity, categories);
+            log(log -> log.categoriesChanged(commodity));
+        }
     }
 
     public ArrayList<Commodity> getCommodities() {
@@ -126,69 +370,43 @@ public class Baloot {
     }
 
     public ArrayList<Commodity> getCommoditiesProvidedByProvider(String providerId) {
-        ArrayList<Commodity> commodities = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getProviderId(), providerId))
-                commodities.add(commodity);
-
-        return commodities;
+        return Database.getInstance().getCommoditiesByProviderId(providerId);
     }
 
     public ArrayList<Comment> getCommentsForCommodity(int commodityId) {
-        ArrayList<Comment> comments = new ArrayList<>();
-        for (Comment comment : Database.getInstance().getComments())
-            if (comment.getCommodityId() == commodityId)
-                comments.add(comment);
+        return Database.getInstance().getCommentsByCommodityId(commodityId);
+    }
 
-        return comments;
+    public ArrayList<Comment> getCommentsForCommodity(int commodityId, int offset, int limit) throws InvalidPageRange {
+        if (offset < 0 || limit < 0)
+            throw new InvalidPageRange();
+
+        return Database.getInstance().getCommentsByCommodityId(commodityId, offset, limit);
     }
 
     public Comment getCommentById(int commentId) throws NotExistentComment {
-        for (Comment comment : Database.getInstance().getComments())
-            if (comment.getId() == commentId)
-                return comment;
+        Comment comment = Database.getInstance().findComment(commentId);
+        if (comment == null)
+            throw new NotExistentComment();
 
-        throw new NotExistentComment();
+        return comment;
     }
 
 
     public ArrayList<Commodity> filterCommoditiesByCategory(String category) {
-        ArrayList<Commodity> result = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (commodity.getCategories().contains(category))
-                result.add(commodity);
-
-        return result;
+        return Database.getInstance().getCommoditiesByCategory(category);
     }
 
     public ArrayList<Commodity> filterCommoditiesByName(String name) {
-        ArrayList<Commodity> result = new ArrayList<>();
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (commodity.getName().contains(name))
-                result.add(commodity);
-
-        return result;
+        return Database.getInstance().getCommoditiesByName(name);
     }
 
     public ArrayList<Commodity> filterCommoditiesByProviderName(String name) {
-        String providerId = "";
-        for (Provider provider : Database.getInstance().getProviders()) {
-            if (provider.getName().equals(name)) {
-                providerId = provider.getId();
-                break;
-            }
-        }
-
-        ArrayList<Commodity> result = new ArrayList<>();
-
-        if (Objects.equals(providerId, ""))
-            return result;
+        String providerId = Database.getInstance().findProviderIdByName(name);
+        if (providerId == null || Objects.equals(providerId, ""))
+            return new ArrayList<>();
 
-        for (Commodity commodity : Database.getInstance().getCommodities())
-            if (Objects.equals(commodity.getProviderId(), providerId))
-                result.add(commodity);
-
-        return result;
+        return Database.getInstance().getCommoditiesByProviderId(providerId);
     }
 
 
@@ -202,20 +420,27 @@ public class Baloot {
         return user.getPurchasedList();
     }
 
+    // New records are logged under their own lock, so no later change to
+    // them can reach the log first.
     public void addUser(User user) throws UsernameAlreadyTaken {
-        for (User user1 : Database.getInstance().getUsers())
-            if (user1.getUsername().equals(user.getUsername()))
+        checkWritable();
+        synchronized (user) {
+            if (!Database.getInstance().addUserIfAbsent(user))
                 throw new UsernameAlreadyTaken();
-
-        Database.getInstance().addUser(user);
+            log(log -> log.userAdded(user));
+        }
     }
 
     public void addComment(Comment comment) {
-        Database.getInstance().addComment(comment);
+        checkWritable();
+        synchronized (comment) {
+            Database.getInstance().addComment(comment);
+            log(log -> log.commentAdded(comment));
+        }
     }
 
     public int generateCommentId() {
-        return Database.getInstance().getComments().size();
+        return Database.getInstance().nextCommentId();
     }
 
     public int isInSimilarCategoryWithFirstCommodity(Commodity c1, Commodity c2) {
@@ -226,32 +451,57 @@ public class Baloot {
         return 0;
     }
 
+    public float getSimilarityScore(Commodity commodity, Commodity other) {
+        return SIMILAR_CATEGORY_SCORE * isInSimilarCategoryWithFirstCommodity(commodity, other) + other.getRating();
+    }
+
     public ArrayList<Commodity> suggestSimilarCommodities(Commodity commodity) {
-        int MAX_NUMBER_OF_COMMODITY_SUGGESTIONS = 4;
+        return suggestionCache.get(commodity);
+    }
+
+    // Ranks every commodity's suggestions on a background thread now, and
+    // re-ranks invalidated ones there from then on.
+    public void enableBackgroundSuggestionRefresh() {
+        suggestionCache.startBackgroundRefresh(Database.getInstance().getCommodities());
+    }
+
+    // Ranks commodities by 11 * (shares a category) + rating, keeping the best
+    // count in a bounded heap. Ties go to the commodity listed first. Those
+    // sharing a category are scored first; the rest of the catalog is only
+    // scanned when its best possible score could still beat the weakest kept.
+    public ArrayList<Commodity> suggestSimilarCommodities(Commodity commodity, int count) {
         ArrayList<Commodity> results = new ArrayList<>();
-        Hashtable<Commodity, Float> commodityScore = new Hashtable<>();
+        if (count <= 0)
+            return results;
 
-        for (Commodity commodity1 : Database.getInstance().getCommodities()) {
-            if (commodity == commodity1)
-                continue;
+        Database database = Database.getInstance();
+        return database.readCommodities(commodities -> {
+            TopCommodities top = new TopCommodities(count);
 
-            float score = 11 * isInSimilarCategoryWithFirstCommodity(commodity, commodity1) + commodity1.getRating();
-            commodityScore.put(commodity1, score);
-        }
+            BitSet similar = database.getCommodityPositionsInCategories(commodity.getCategories());
+            for (int position = similar.nextSetBit(0); position >= 0; position = similar.nextSetBit(position + 1)) {
+                Commodity commodity1 = commodities.get(position);
+                if (commodity == commodity1)
+                    continue;
 
-        List<Map.Entry<Commodity, Float>> list = new ArrayList<>(commodityScore.entrySet());
-        list.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+                top.offer(SIMILAR_CATEGORY_SCORE + commodity1.getRating(), position);
+            }
 
-        int count = 0;
-        for (Map.Entry<Commodity, Float> entry : list) {
-            results.add(entry.getKey());
+            if (!top.isFull() || top.worstScore() <= database.getRatingCeiling()) {
+                for (int position = similar.nextClearBit(0); position < commodities.size(); position = similar.nextClearBit(position + 1)) {
+                    Commodity commodity1 = commodities.get(position);
+                    if (commodity == commodity1)
+                        continue;
 
-            count += 1;
-            if (count >= MAX_NUMBER_OF_COMMODITY_SUGGESTIONS)
-                break;
-        }
+                    top.offer(commodity1.getRating(), position);
+                }
+            }
+
+            for (int position : top.drainBestFirst())
+                results.add(commodities.get(position));
 
-        return results;
+            return results;
+        });
     }
 
 }
@@ -0,0 +1,293 @@
+package service;
+
+import database.CatalogListener;
+import database.Database;
+import model.Commodity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caches the suggestion list of each commodity by its ID. An entry is dropped
+// only when a rating, category or catalog change could alter it.
+//
+// Changes are applied on a worker thread, so a rating or a catalog change
+// only queues work on the request path. The worker finds the lists a change
+// affects through reverse indexes instead of scanning every entry. Until it
+// has applied every change, page views rank afresh rather than trust the
+// cache, so a change is visible on the next view. With background refresh
+// on, the worker also recomputes dropped entries, each commodity queued at
+// most once.
+class SuggestionCache implements CatalogListener {
+    private record Entry(Commodity owner, ArrayList<Commodity> suggestions, float weakestScore,
+                         List<String> categories, long rankedAt) {
+    }
+
+    // A change, as the lists it drops: the lists of the owners, the lists
+    // holding a member, and the lists an entrant could now enter. All drops
+    // every list.
+    private record Change(long sequence, Set<String> owners, Set<String> members,
+                          Collection<Commodity> entrants, boolean all) {
+    }
+
+    // Changes applied recently, for lists ranked before them but stored
+    // after. A list ranked before the oldest one kept is not cached.
+    private static final int RECENT_CHANGES = 1024;
+
+    private final Baloot baloot;
+    private final int size;
+    // Runs one task at a time. Only its tasks touch the indexes below.
+    private final Executor worker;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Changes reported and changes the worker has applied. Entries are only
+    // served while the two match.
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final ArrayDeque<Change> recent = new ArrayDeque<>();
+    private long forgotten;
+
+    // Owner IDs by the IDs they suggest and by the owner's categories. A
+    // commodity sharing no category with an owner scores only its rating, see
+    // Baloot.getSimilarityScore, so it can enter the lists whose weakest
+    // score its rating reaches, found in byWeakestScore. Lists that are not
+    // full are kept there at negative infinity.
+    private final HashMap<String, Set<String>> holders = new HashMap<>();
+    private final HashMap<String, Set<String>> byCategory = new HashMap<>();
+    private final TreeMap<Float, Set<String>> byWeakestScore = new TreeMap<>();
+
+    private volatile boolean refreshing;
+    // IDs waiting for the worker, so changes that drop an entry again before
+    // it is recomputed do not queue it twice.
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    SuggestionCache(Baloot baloot, int size) {
+        this(baloot, size, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suggestion-cache");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    SuggestionCache(Baloot baloot, int size, Executor worker) {
+        this.baloot = baloot;
+        this.size = size;
+        this.worker = worker;
+    }
+
+    ArrayList<Commodity> get(Commodity commodity) {
+        Entry entry = entries.get(commodity.getId());
+        if (entry != null && entry.owner() == commodity && applied.get() == published.get())
+            return new ArrayList<>(entry.suggestions());
+
+        return compute(commodity);
+    }
+
+    void startBackgroundRefresh(Collection<Commodity> commodities) {
+        refreshing = true;
+        for (Commodity commodity : commodities)
+            refresh(commodity.getId());
+    }
+
+    // The worker ranks whichever commodity holds the ID by then, unless a
+    // page view has cached its list meanwhile.
+    private void refresh(String id) {
+        if (!refreshing || id == null || !queued.add(id))
+            return;
+
+        worker.execute(() -> {
+            queued.remove(id);
+            Commodity commodity = Database.getInstance().findCommodity(id);
+            Entry entry = entries.get(id);
+            if (commodity != null && (entry == null || entry.owner() != commodity))
+                compute(commodity);
+        });
+    }
+
+    private ArrayList<Commodity> compute(Commodity commodity) {
+        long rankedAt = published.get();
+        ArrayList<Commodity> suggestions = baloot.suggestSimilarCommodities(commodity, size);
+        float weakestScore = suggestions.isEmpty() ? 0
+                : baloot.getSimilarityScore(commodity, suggestions.get(suggestions.size() - 1));
+        List<String> categories = commodity.getCategories() == null ? List.of() : new ArrayList<>(commodity.getCategories());
+        Entry entry = new Entry(commodity, new ArrayList<>(suggestions), weakestScore, categories, rankedAt);
+        worker.execute(() -> store(entry));
+
+        return suggestions;
+    }
+
+    // Caches a ranked list, unless a change applied since it was ranked
+    // could have altered it.
+    private void store(Entry entry) {
+        if (entry.rankedAt() < forgotten)
+            return;
+        for (Change change : recent)
+            if (change.sequence() > entry.rankedAt() && affects(change, entry))
+                return;
+
+        String id = entry.owner().getId();
+        Entry previous = entries.get(id);
+        if (previous != null && previous.rankedAt() > entry.rankedAt())
+            return;
+
+        if (previous != null)
+            unindex(id, previous);
+        entries.put(id, entry);
+        index(id, entry);
+    }
+
+    private void index(String id, Entry entry) {
+        for (Commodity suggested : entry.suggestions())
+            holders.computeIfAbsent(suggested.getId(), key -> new HashSet<>()).add(id);
+        for (String category : entry.categories())
+            byCategory.computeIfAbsent(category, key -> new HashSet<>()).add(id);
+        byWeakestScore.computeIfAbsent(weakestKey(entry), key -> new HashSet<>()).add(id);
+    }
+
+    private void unindex(String id, Entry entry) {
+        for (Commodity suggested : entry.suggestions())
+            unindex(holders, suggested.getId(), id);
+        for (String category : entry.categories())
+            unindex(byCategory, category, id);
+        unindex(byWeakestScore, weakestKey(entry), id);
+    }
+
+    private static <K> void unindex(Map<K, Set<String>> index, K key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids == null)
+            return;
+
+        ids.remove(id);
+        if (ids.isEmpty())
+            index.remove(key);
+    }
+
+    private float weakestKey(Entry entry) {
+        return entry.suggestions().size() < size ? Float.NEGATIVE_INFINITY : entry.weakestScore();
+    }
+
+    // A change to one commodity can only alter lists that contain it, lists
+    // that are not full yet, and lists it could now enter.
+    private boolean isAffected(Entry entry, Commodity changed) {
+        if (entry.owner() == changed)
+            return false;
+        if (entry.suggestions().size() < size)
+            return true;
+
+        for (Commodity suggested : entry.suggestions())
+            if (suggested == changed)
+                return true;
+
+        return baloot.getSimilarityScore(entry.owner(), changed) >= entry.weakestScore();
+    }
+
+    private boolean affects(Change change, Entry entry) {
+        if (change.all() || change.owners().contains(entry.owner().getId()))
+            return true;
+        for (Commodity suggested : entry.suggestions())
+            if (change.members().contains(suggested.getId()))
+                return true;
+        for (Commodity entrant : change.entrants())
+            if (isAffected(entry, entrant))
+                return true;
+
+        return false;
+    }
+
+    private void publish(Set<String> owners, Set<String> members, Collection<Commodity> entrants, boolean all) {
+        Change change = new Change(published.incrementAndGet(), owners, members, entrants, all);
+        worker.execute(() -> apply(change));
+    }
+
+    private void apply(Change change) {
+        if (change.all()) {
+            entries.clear();
+            holders.clear();
+            byCategory.clear();
+            byWeakestScore.clear();
+        } else {
+            Set<String> candidates = new HashSet<>(change.owners());
+            for (String member : change.members())
+                candidates.addAll(holders.getOrDefault(member, Set.of()));
+            for (Commodity entrant : change.entrants()) {
+                if (entrant.getCategories() != null)
+                    for (String category : entrant.getCategories())
+                        candidates.addAll(byCategory.getOrDefault(category, Set.of()));
+                for (Set<String> ids : byWeakestScore.headMap(entrant.getRating(), true).values())
+                    candidates.addAll(ids);
+            }
+
+            for (String id : candidates) {
+                Entry entry = entries.get(id);
+                if (entry != null && affects(change, entry))
+                    drop(id, entry);
+            }
+        }
+
+        recent.addLast(change);
+        if (recent.size() > RECENT_CHANGES)
+            forgotten = recent.removeFirst().sequence();
+        applied.incrementAndGet();
+
+        if (change.all() && refreshing)
+            startBackgroundRefresh(Database.getInstance().getCommodities());
+    }
+
+    private void drop(String id, Entry entry) {
+        entries.remove(id);
+        unindex(id, entry);
+        refresh(id);
+    }
+
+    @Override
+    public void commodityAdded(Commodity commodity) {
+        publish(Set.of(), Set.of(), List.of(commodity), false);
+    }
+
+    @Override
+    public void ratingChanged(Commodity commodity, float previousRating) {
+        publish(Set.of(), idsOf(List.of(commodity)), List.of(commodity), false);
+    }
+
+    @Override
+    public void categoriesChanged(Commodity commodity) {
+        Set<String> ids = idsOf(List.of(commodity));
+        publish(ids, ids, List.of(commodity), false);
+    }
+
+    // Drops the lists of replaced and removed commodities, the lists that
+    // hold any of them, and the lists the reranked and added ones could enter.
+    @Override
+    public void catalogReloaded(Map<Commodity, Commodity> replaced, Set<Commodity> reranked,
+                                Collection<Commodity> added, Set<Commodity> removed) {
+        Set<String> ids = idsOf(replaced.keySet());
+        ids.addAll(idsOf(removed));
+        List<Commodity> entrants = new ArrayList<>(reranked);
+        entrants.addAll(added);
+        publish(ids, ids, entrants, false);
+    }
+
+    @Override
+    public void catalogReplaced() {
+        publish(Set.of(), Set.of(), List.of(), true);
+    }
+
+    private static Set<String> idsOf(Collection<Commodity> commodities) {
+        Set<String> ids = new HashSet<>();
+        for (Commodity commodity : commodities)
+            if (commodity.getId() != null)
+                ids.add(commodity.getId());
+
+        return ids;
+    }
+}
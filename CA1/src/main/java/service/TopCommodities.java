@@ -0,0 +1,94 @@
+package service;
+
+// Keeps the best k (score, catalog position) pairs offered so far. The pairs
+// live in a min-heap over two primitive arrays, with the worst kept pair at
+// the root, so no boxing or map is needed. Higher scores rank first and equal
+// scores are ranked by catalog position.
+class TopCommodities {
+    private final float[] scores;
+    private final int[] positions;
+    private int size;
+
+    TopCommodities(int capacity) {
+        scores = new float[capacity];
+        positions = new int[capacity];
+    }
+
+    boolean isFull() {
+        return size == scores.length;
+    }
+
+    float worstScore() {
+        return scores[0];
+    }
+
+    void offer(float score, int position) {
+        if (!isFull()) {
+            scores[size] = score;
+            positions[size] = position;
+            siftUp(size++);
+        } else if (size > 0 && isWorse(scores[0], positions[0], score, position)) {
+            scores[0] = score;
+            positions[0] = position;
+            siftDown(0);
+        }
+    }
+
+    // Empties the heap, returning the kept positions best first.
+    int[] drainBestFirst() {
+        int[] result = new int[size];
+        while (size > 0) {
+            result[size - 1] = positions[0];
+            size--;
+            scores[0] = scores[size];
+            positions[0] = positions[size];
+            siftDown(0);
+        }
+
+        return result;
+    }
+
+    private static boolean isWorse(float score, int position, float otherScore, int otherPosition) {
+        if (score != otherScore)
+            return score < otherScore;
+        return position > otherPosition;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isWorse(scores[index], positions[index], scores[parent], positions[parent]))
+                return;
+
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && isWorse(scores[left], positions[left], scores[worst], positions[worst]))
+                worst = left;
+            if (right < size && isWorse(scores[right], positions[right], scores[worst], positions[worst]))
+                worst = right;
+            if (worst == index)
+                return;
+
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int first, int second) {
+        float score = scores[first];
+        scores[first] = scores[second];
+        scores[second] = score;
+
+        int position = positions[first];
+        positions[first] = positions[second];
+        positions[second] = position;
+    }
+}
@@ -0,0 +1,53 @@
+package application;
+
+import database.DataParser;
+import database.DatabaseSnapshot;
+import database.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BalootPropertiesTest {
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(DataParser.DATA_PATH_PROPERTY);
+        System.clearProperty(DataParser.MEMORY_MAPPED_PROPERTY);
+        System.clearProperty(DatabaseSnapshot.SNAPSHOT_PATH_PROPERTY);
+        System.clearProperty(WriteAheadLog.LOG_PATH_PROPERTY);
+    }
+
+    @Test
+    @DisplayName("Test settings from a Spring property source reach the loaders")
+    public void testBoundSettingsAreExported() {
+        // SetUp
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("baloot.data.path", "/srv/baloot/data")
+                .withProperty("baloot.data.mmap", "true")
+                .withProperty("baloot.wal.path", "/srv/baloot/baloot.wal");
+
+        // Execute
+        BalootApplication.bindBalootProperties(environment).exportToSystemProperties();
+
+        // Validate
+        assertEquals("/srv/baloot/data", System.getProperty(DataParser.DATA_PATH_PROPERTY));
+        assertTrue(Boolean.getBoolean(DataParser.MEMORY_MAPPED_PROPERTY));
+        assertEquals("/srv/baloot/baloot.wal", System.getProperty(WriteAheadLog.LOG_PATH_PROPERTY));
+        assertNull(System.getProperty(DatabaseSnapshot.SNAPSHOT_PATH_PROPERTY));
+    }
+
+    @Test
+    @DisplayName("Test missing settings keep the loaders' defaults")
+    public void testMissingSettingsKeepDefaults() {
+        // Execute
+        BalootProperties properties = BalootApplication.bindBalootProperties(new MockEnvironment());
+        properties.exportToSystemProperties();
+
+        // Validate
+        assertNull(properties.getData().getPath());
+        assertNull(System.getProperty(DataParser.DATA_PATH_PROPERTY));
+        assertFalse(Boolean.getBoolean(DataParser.MEMORY_MAPPED_PROPERTY));
+    }
+}
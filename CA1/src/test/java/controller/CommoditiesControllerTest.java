@@ -1,6 +1,7 @@
 package controller;
 
 import controllers.CommoditiesController;
+import exceptions.InvalidPageRange;
 import exceptions.NotExistentCommodity;
 import exceptions.NotExistentUser;
 import model.Comment;
@@ -248,7 +249,7 @@ public class CommoditiesControllerTest {
         commentsFake.add(createFakeComment());
 
         when(baloot.getCommentsForCommodity(commodityId)).thenReturn(commentsFake);
-        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(String.valueOf(commodityId));
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(String.valueOf(commodityId), null, null);
 
         verify(baloot, times(1)).getCommentsForCommodity(commodityId);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -257,11 +258,36 @@ public class CommoditiesControllerTest {
         assertEquals(response.getBody().get(0).getText(), commentsFake.get(0).getText());
     }
 
+    @Test
+    public void getCommodityCommentPagedTest() throws InvalidPageRange {
+        int commodityId = 123;
+        ArrayList<Comment> commentsFake = new ArrayList<>();
+        commentsFake.add(createFakeComment());
+
+        when(baloot.getCommentsForCommodity(commodityId, 10, 5)).thenReturn(commentsFake);
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(String.valueOf(commodityId), 10, 5);
+
+        verify(baloot, times(1)).getCommentsForCommodity(commodityId, 10, 5);
+        verify(baloot, times(0)).getCommentsForCommodity(commodityId);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(response.getBody().size(), commentsFake.size());
+    }
+
+    @Test
+    public void getCommodityCommentInvalidPageTest() throws InvalidPageRange {
+        int commodityId = 123;
+
+        when(baloot.getCommentsForCommodity(commodityId, -1, Integer.MAX_VALUE)).thenThrow(new InvalidPageRange());
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(String.valueOf(commodityId), -1, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     public void getCommodityCommentInValidTest() {
         String commodityId = "not number";
 
-        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodityId);
+        ResponseEntity<ArrayList<Comment>> response = commoditiesController.getCommodityComment(commodityId, null, null);
 
         verify(baloot, times(0)).getCommentsForCommodity(anyInt());
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
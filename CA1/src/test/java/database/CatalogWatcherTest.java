@@ -0,0 +1,41 @@
+package database;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogWatcherTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Test only watched files that changed are handed to the reloader")
+    public void testReloadsChangedFiles() throws Exception {
+        // SetUp
+        BlockingQueue<String> reloaded = new LinkedBlockingQueue<>();
+        CatalogWatcher watcher = new CatalogWatcher(directory, Set.of("commodities.json"), reloaded::add, 50);
+        watcher.start();
+
+        // Execute
+        try {
+            Files.writeString(directory.resolve("users.json"), "[]");
+            Files.writeString(directory.resolve("commodities.json"), "[");
+            Files.writeString(directory.resolve("commodities.json"), "[]");
+
+            // Validate
+            assertEquals("commodities.json", reloaded.poll(10, TimeUnit.SECONDS));
+            assertNull(reloaded.poll(500, TimeUnit.MILLISECONDS));
+        } finally {
+            watcher.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseSnapshotTest {
+    private final Database database = Database.getInstance();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Test a snapshot restores every table with buy lists, ratings and votes")
+    public void testRoundTrip() throws Exception {
+        // SetUp
+        User user = new User("snapshot-test-user", "secret", "snapshot@test.ir", "2000-01-01", null);
+        user.addCredit(250);
+        user.setBuyList(Map.of("snapshot-test-commodity", 2));
+        user.setPurchasedList(Map.of("1", 3));
+        user.setCommoditiesRates(Map.of(7, 9));
+        database.addUser(user);
+
+        Commodity commodity = DatabaseTest.createAnonymousCommodity("snapshot-test-commodity");
+        commodity.setName("snapshot commodity");
+        commodity.setCategories(new ArrayList<>(List.of("snapshot-test-category")));
+        commodity.setInStock(5);
+        database.addCommodity(commodity);
+        commodity.addRate("snapshot-test-user", 8);
+
+        Comment comment = new Comment(database.nextCommentId(), "snapshot@test.ir", "snapshot-test-user", -500, "ünïcode");
+        comment.addUserVote("snapshot-test-user", "like");
+        database.addComment(comment);
+
+        int users = database.getUsers().size();
+        int commodities = database.getCommodities().size();
+        int comments = database.getCommentCount();
+        DatabaseSnapshot snapshot = new DatabaseSnapshot(database, directory.resolve("baloot.snapshot"));
+
+        // Execute
+        snapshot.save();
+        assertTrue(snapshot.load());
+
+        // Validate
+        assertEquals(users, database.getUsers().size());
+        assertEquals(commodities, database.getCommodities().size());
+        assertEquals(comments, database.getCommentCount());
+
+        User restoredUser = database.findUser("snapshot-test-user");
+        assertNotSame(user, restoredUser);
+        assertEquals(250, restoredUser.getCredit());
+        assertNull(restoredUser.getAddress());
+        assertEquals(Map.of("snapshot-test-commodity", 2), restoredUser.getBuyList());
+        assertEquals(Map.of("1", 3), restoredUser.getPurchasedList());
+        assertEquals(Map.of(7, 9), restoredUser.getCommoditiesRates());
+
+        Commodity restoredCommodity = database.findCommodity("snapshot-test-commodity");
+        assertEquals(commodity.getRating(), restoredCommodity.getRating());
+        assertEquals(Map.of("snapshot-test-user", 8), restoredCommodity.getUserRate());
+        assertEquals(List.of(restoredCommodity), database.getCommoditiesByCategory("snapshot-test-category"));
+        assertEquals(List.of(restoredCommodity), database.getCommoditiesByName("snapshot commodity"));
+
+        Comment restoredComment = database.findComment(comment.getId());
+        assertEquals("ünïcode", restoredComment.getText());
+        assertEquals(1, restoredComment.getLike());
+        assertEquals(Map.of("snapshot-test-user", "like"), restoredComment.getUserVote());
+        assertTrue(database.nextCommentId() > comment.getId());
+    }
+
+    @Test
+    @DisplayName("Test a snapshot keeps the catalog baseline, so a reload after a restore keeps sales")
+    public void testCatalogBaselineRoundTrip() throws Exception {
+        // SetUp
+        ArrayList<Commodity> previous = database.getCommodities();
+        Commodity sold = DatabaseTest.createAnonymousCommodity("snapshot-test-sold");
+        sold.setInStock(10);
+        ArrayList<Commodity> loaded = new ArrayList<>(previous);
+        loaded.add(sold);
+        database.setCommodities(loaded);
+        sold.updateInStock(-3);
+        DatabaseSnapshot snapshot = new DatabaseSnapshot(database, directory.resolve("baloot.snapshot"));
+
+        // Execute
+        snapshot.save();
+        assertTrue(snapshot.load());
+        Commodity restored = database.findCommodity("snapshot-test-sold");
+        Commodity soldInFile = DatabaseTest.createAnonymousCommodity("snapshot-test-sold");
+        soldInFile.setInStock(10);
+        soldInFile.setPrice(5);
+        ArrayList<Commodity> file = database.getCommodities();
+        file.set(file.indexOf(restored), soldInFile);
+
+        // Validate
+        assertTrue(database.reloadCommodities(sink -> file.forEach(sink)));
+        assertEquals(7, database.findCommodity("snapshot-test-sold").getInStock());
+        assertEquals(5, database.findCommodity("snapshot-test-sold").getPrice());
+
+        // Teardown
+        database.setCommodities(previous);
+    }
+
+    @Test
+    @DisplayName("Test a snapshot of another version is rejected without touching the database")
+    public void testRejectsOtherVersion() throws Exception {
+        // SetUp
+        Path path = directory.resolve("old.snapshot");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            out.writeInt(DatabaseSnapshot.MAGIC);
+            out.writeInt(DatabaseSnapshot.VERSION + 1);
+            for (int section = 0; section < 5; section++)
+                out.writeLong(0);
+        }
+        List<User> users = database.getUsers();
+
+        // Execute & Validate
+        assertFalse(new DatabaseSnapshot(database, path).load());
+        assertFalse(new DatabaseSnapshot(database, directory.resolve("missing.snapshot")).load());
+        assertEquals(users, database.getUsers());
+    }
+
+    @Test
+    @DisplayName("Test a snapshot is only used when it is newer than the data files")
+    public void testIsNewerThan() throws Exception {
+        // SetUp
+        Path data = Files.writeString(directory.resolve("users.json"), "[]");
+        DatabaseSnapshot snapshot = new DatabaseSnapshot(database, directory.resolve("baloot.snapshot"));
+        assertFalse(snapshot.isNewerThan(List.of(data)));
+
+        // Execute
+        snapshot.save();
+        Files.setLastModifiedTime(data, Files.getLastModifiedTime(snapshot.getPath()));
+
+        // Validate
+        assertTrue(snapshot.isNewerThan(List.of(data)));
+        Files.setLastModifiedTime(data, FileTime.fromMillis(
+                Files.getLastModifiedTime(snapshot.getPath()).toMillis() + 1000));
+        assertFalse(snapshot.isNewerThan(List.of(data)));
+    }
+}
@@ -0,0 +1,380 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseTest {
+    private final Database database = Database.getInstance();
+    private ArrayList<User> previousUsers;
+    private ArrayList<Provider> previousProviders;
+    private ArrayList<Commodity> previousCommodities;
+    private ArrayList<Comment> previousComments;
+
+    @BeforeEach
+    public void setUp() {
+        previousUsers = database.getUsers();
+        previousProviders = database.getProviders();
+        previousCommodities = database.getCommodities();
+        previousComments = database.getComments();
+    }
+
+    // The singleton outlives each test, so the records a test added are dropped.
+    @AfterEach
+    public void tearDown() {
+        database.setUsers(previousUsers);
+        database.setProviders(previousProviders);
+        database.setCommodities(previousCommodities);
+        database.setComments(previousComments);
+    }
+
+    public static Commodity createAnonymousCommodity(String id) {
+        Commodity commodity = new Commodity();
+        commodity.setId(id);
+        commodity.setName("product " + id);
+        commodity.setProviderId("provider-" + id);
+
+        return commodity;
+    }
+
+    @Test
+    @DisplayName("Test added records can be found by their primary key")
+    public void testFindAddedRecords() {
+        // SetUp
+        User user = new User("database-test-user", "pass", "db@test.ir", "2000-01-01", "Tehran");
+        Provider provider = new Provider();
+        provider.setId("database-test-provider");
+        Commodity commodity = createAnonymousCommodity("database-test-commodity");
+        Comment comment = new Comment(-100, "db@test.ir", "database-test-user", -100, "text");
+
+        // Execute
+        database.addUser(user);
+        database.addProvider(provider);
+        database.addCommodity(commodity);
+        database.addComment(comment);
+
+        // Validate
+        assertSame(user, database.findUser("database-test-user"));
+        assertSame(provider, database.findProvider("database-test-provider"));
+        assertSame(commodity, database.findCommodity("database-test-commodity"));
+        assertSame(comment, database.findComment(-100));
+        assertNull(database.findUser("database-test-missing"));
+        assertNull(database.findComment(-101));
+    }
+
+    @Test
+    @DisplayName("Test the first record wins when a primary key is duplicated")
+    public void testFirstDuplicateWins() {
+        // SetUp
+        Commodity first = createAnonymousCommodity("database-test-duplicate");
+        Commodity second = createAnonymousCommodity("database-test-duplicate");
+
+        // Execute
+        database.addCommodity(first);
+        database.addCommodity(second);
+
+        // Validate
+        assertSame(first, database.findCommodity("database-test-duplicate"));
+    }
+
+    @Test
+    @DisplayName("Test setters rebuild the primary-key index")
+    public void testSetterRebuildsIndex() {
+        // SetUp
+        Commodity stale = createAnonymousCommodity("database-test-stale");
+        database.addCommodity(stale);
+        Commodity fresh = createAnonymousCommodity("database-test-fresh");
+
+        // Execute
+        database.setCommodities(new ArrayList<>(List.of(fresh)));
+
+        // Validate
+        assertSame(fresh, database.findCommodity("database-test-fresh"));
+        assertNull(database.findCommodity("database-test-stale"));
+    }
+
+    @Test
+    @DisplayName("Test provider indexes list commodities in catalog order")
+    public void testProviderIndexes() {
+        // SetUp
+        Provider provider = new Provider();
+        provider.setId("database-test-provider-index");
+        provider.setName("database-test-provider-name");
+        Commodity first = createAnonymousCommodity("database-test-provided-1");
+        first.setProviderId(provider.getId());
+        Commodity second = createAnonymousCommodity("database-test-provided-2");
+        second.setProviderId(provider.getId());
+
+        // Execute
+        database.addProvider(provider);
+        database.addCommodity(first);
+        database.addCommodity(createAnonymousCommodity("database-test-not-provided"));
+        database.addCommodity(second);
+
+        // Validate
+        assertEquals(provider.getId(), database.findProviderIdByName("database-test-provider-name"));
+        assertEquals(List.of(first, second), database.getCommoditiesByProviderId(provider.getId()));
+        assertTrue(database.getCommoditiesByProviderId("database-test-no-provider").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test category index follows category changes and keeps catalog order")
+    public void testCategoryIndex() {
+        // SetUp
+        Commodity first = createAnonymousCommodity("database-test-category-1");
+        first.setCategories(new ArrayList<>(List.of("database-test-old")));
+        Commodity second = createAnonymousCommodity("database-test-category-2");
+        second.setCategories(new ArrayList<>(List.of("database-test-new")));
+        database.addCommodity(first);
+        database.addCommodity(second);
+
+        // Execute
+        database.updateCommodityCategories(first, new ArrayList<>(List.of("database-test-new")));
+
+        // Validate
+        assertTrue(database.getCommoditiesByCategory("database-test-old").isEmpty());
+        assertEquals(List.of(first, second), database.getCommoditiesByCategory("database-test-new"));
+        assertEquals(List.of("database-test-new"), first.getCategories());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "o", "ph", "Phone", "phone", "hone", "ababab", "bab", "zzz", "database-test"})
+    @DisplayName("Test name search matches a plain contains scan")
+    public void testNameSearchMatchesScan(String query) {
+        // SetUp
+        for (String name : List.of("iPhone", "Smartphone", "phone case", "ababab", "babble"))
+            if (database.findCommodity("database-test-name-" + name) == null) {
+                Commodity commodity = createAnonymousCommodity("database-test-name-" + name);
+                commodity.setName(name);
+                database.addCommodity(commodity);
+            }
+
+        ArrayList<Commodity> expected = new ArrayList<>();
+        for (Commodity commodity : database.getCommodities())
+            if (commodity.getName() != null && commodity.getName().contains(query))
+                expected.add(commodity);
+
+        // Execute & Validate
+        assertEquals(expected, database.getCommoditiesByName(query));
+    }
+
+    @Test
+    @DisplayName("Test comments of a commodity are listed oldest first and paged newest first")
+    public void testCommentsByCommodity() {
+        // SetUp
+        int commodityId = -200;
+        Comment first = new Comment(-201, "db@test.ir", "database-test-user", commodityId, "first");
+        Comment second = new Comment(-202, "db@test.ir", "database-test-user", commodityId, "second");
+        Comment third = new Comment(-203, "db@test.ir", "database-test-user", commodityId, "third");
+
+        // Execute
+        database.addComment(first);
+        database.addComment(new Comment(-204, "db@test.ir", "database-test-user", commodityId - 1, "other"));
+        database.addComment(second);
+        database.addComment(third);
+
+        // Validate
+        assertEquals(List.of(first, second, third), database.getCommentsByCommodityId(commodityId));
+        assertEquals(List.of(third, second), database.getCommentsByCommodityId(commodityId, 0, 2));
+        assertEquals(List.of(second, first), database.getCommentsByCommodityId(commodityId, 1, 10));
+        assertTrue(database.getCommentsByCommodityId(commodityId, 3, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test concurrent writers and readers neither lose records nor fail")
+    public void testConcurrentAccess() throws Exception {
+        // SetUp
+        int threads = 8;
+        int perThread = 500;
+        int before = database.getCommentCount();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Execute
+        for (int thread = 0; thread < threads; thread++) {
+            int offset = thread * perThread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int id = -10_000 - offset - i;
+                    database.addComment(new Comment(id, "db@test.ir", "database-test-user", -300, "concurrent"));
+                    database.addUserIfAbsent(new User("database-test-concurrent-" + (offset + i), "", "", "", ""));
+                    assertNotNull(database.findComment(id));
+                    database.getCommentsByCommodityId(-300, 0, 10);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        // Validate
+        assertEquals(before + threads * perThread, database.getCommentCount());
+        assertEquals(threads * perThread, database.getCommentsByCommodityId(-300).size());
+        for (int i = 0; i < threads * perThread; i++)
+            assertNotNull(database.findUser("database-test-concurrent-" + i));
+    }
+
+    @Test
+    @DisplayName("Test generated comment IDs are unique and above every stored ID")
+    public void testNextCommentId() throws Exception {
+        // SetUp
+        database.addComment(new Comment(1_000_000, "db@test.ir", "database-test-user", -400, "far ahead"));
+        Set<Integer> ids = Collections.synchronizedSet(new HashSet<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Execute
+        for (int i = 0; i < 1000; i++)
+            executor.submit(() -> ids.add(database.nextCommentId()));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Validate
+        assertEquals(1000, ids.size());
+        for (int id : ids) {
+            assertTrue(id > 1_000_000);
+            assertNull(database.findComment(id));
+        }
+    }
+
+    @Test
+    @DisplayName("Test a catalog reload replaces changed commodities with updated copies that keep their ratings")
+    public void testReloadCommodities() throws Exception {
+        // SetUp
+        Commodity changed = createAnonymousCommodity("database-test-reload-changed");
+        Commodity removed = createAnonymousCommodity("database-test-reload-removed");
+        database.addCommodity(changed);
+        database.addCommodity(removed);
+        changed.addRate("database-test-user", 6);
+
+        Commodity update = createAnonymousCommodity("database-test-reload-changed");
+        update.setPrice(42);
+        update.setCategories(new ArrayList<>(List.of("database-test-reload-category")));
+        Commodity added = createAnonymousCommodity("database-test-reload-added");
+        ArrayList<Commodity> file = new ArrayList<>(previousCommodities);
+        file.add(update);
+        file.add(added);
+
+        // Execute
+        boolean reloaded = database.reloadCommodities(sink -> file.forEach(sink));
+
+        // Validate
+        assertTrue(reloaded);
+        Commodity live = database.findCommodity("database-test-reload-changed");
+        assertNotSame(changed, live);
+        assertEquals(42, live.getPrice());
+        assertEquals(List.of("database-test-reload-category"), live.getCategories());
+        assertEquals(Map.of("database-test-user", 6), live.getUserRate());
+        assertNotEquals(42, changed.getPrice());
+        assertEquals(List.of(live), database.getCommoditiesByCategory("database-test-reload-category"));
+        assertSame(added, database.findCommodity("database-test-reload-added"));
+        assertNull(database.findCommodity("database-test-reload-removed"));
+        assertFalse(database.getCommodities().contains(removed));
+        assertFalse(database.reloadCommodities(sink -> file.forEach(sink)));
+    }
+
+    @Test
+    @DisplayName("Test a catalog reload keeps stock sold since and applies stock the file changed")
+    public void testReloadCommoditiesStock() throws Exception {
+        // SetUp
+        Commodity sold = createAnonymousCommodity("database-test-reload-sold");
+        sold.setInStock(10);
+        Commodity restocked = createAnonymousCommodity("database-test-reload-restocked");
+        restocked.setInStock(10);
+        ArrayList<Commodity> loaded = new ArrayList<>(previousCommodities);
+        loaded.add(sold);
+        loaded.add(restocked);
+        database.setCommodities(loaded);
+        sold.updateInStock(-3);
+        restocked.updateInStock(-3);
+
+        Commodity soldInFile = createAnonymousCommodity("database-test-reload-sold");
+        soldInFile.setInStock(10);
+        soldInFile.setPrice(5);
+        Commodity restockedInFile = createAnonymousCommodity("database-test-reload-restocked");
+        restockedInFile.setInStock(20);
+        ArrayList<Commodity> file = new ArrayList<>(previousCommodities);
+        file.add(soldInFile);
+        file.add(restockedInFile);
+
+        // Execute
+        boolean reloaded = database.reloadCommodities(sink -> file.forEach(sink));
+
+        // Validate
+        assertTrue(reloaded);
+        assertEquals(7, database.findCommodity("database-test-reload-sold").getInStock());
+        assertEquals(5, database.findCommodity("database-test-reload-sold").getPrice());
+        assertEquals(20, database.findCommodity("database-test-reload-restocked").getInStock());
+        database.findCommodity("database-test-reload-restocked").updateInStock(-1);
+        assertFalse(database.reloadCommodities(sink -> file.forEach(sink)));
+        assertEquals(19, database.findCommodity("database-test-reload-restocked").getInStock());
+    }
+
+    @Test
+    @DisplayName("Test a rate given to a commodity a reload replaced reaches its updated copy")
+    public void testReloadCommoditiesForwardsRates() throws Exception {
+        // SetUp
+        Commodity changed = createAnonymousCommodity("database-test-reload-rated");
+        database.addCommodity(changed);
+        Commodity update = createAnonymousCommodity("database-test-reload-rated");
+        update.setPrice(42);
+        ArrayList<Commodity> file = new ArrayList<>(previousCommodities);
+        file.add(update);
+        database.reloadCommodities(sink -> file.forEach(sink));
+
+        // Execute
+        changed.addRate("database-test-user", 8);
+
+        // Validate
+        Commodity live = database.findCommodity("database-test-reload-rated");
+        assertNotSame(changed, live);
+        assertSame(live, changed.getLatest());
+        assertEquals(Map.of("database-test-user", 8), live.getUserRate());
+    }
+
+    @Test
+    @DisplayName("Test a catalog reload renames providers and reindexes their names")
+    public void testReloadProviders() throws Exception {
+        // SetUp
+        Provider provider = new Provider();
+        provider.setId("database-test-reload-provider");
+        provider.setName("database-test-old-name");
+        database.addProvider(provider);
+
+        Provider renamed = new Provider();
+        renamed.setId("database-test-reload-provider");
+        renamed.setName("database-test-new-name");
+        ArrayList<Provider> file = new ArrayList<>(previousProviders);
+        file.add(renamed);
+
+        // Execute
+        boolean reloaded = database.reloadProviders(sink -> file.forEach(sink));
+
+        // Validate
+        assertTrue(reloaded);
+        assertSame(provider, database.findProvider("database-test-reload-provider"));
+        assertEquals("database-test-new-name", provider.getName());
+        assertEquals(provider.getId(), database.findProviderIdByName("database-test-new-name"));
+        assertNull(database.findProviderIdByName("database-test-old-name"));
+    }
+}
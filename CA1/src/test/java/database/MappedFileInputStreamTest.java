@@ -0,0 +1,59 @@
+package database;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileInputStreamTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Test a file larger than one window is read whole and in order")
+    public void testReadAcrossWindows() throws Exception {
+        // SetUp
+        Path path = Files.copy(Path.of("src/main/java/database/data/commodities.json"), directory.resolve("commodities.json"));
+
+        // Execute
+        byte[] bytes;
+        try (InputStream input = new MappedFileInputStream(path, 100)) {
+            bytes = input.readAllBytes();
+        }
+
+        // Validate
+        assertArrayEquals(Files.readAllBytes(path), bytes);
+    }
+
+    @Test
+    @DisplayName("Test single byte reads stop at the end of the file")
+    public void testSingleByteReads() throws Exception {
+        // SetUp
+        Path path = Files.write(directory.resolve("data.json"), new byte[]{'[', ']', (byte) 0xff});
+
+        // Execute & Validate
+        try (InputStream input = new MappedFileInputStream(path, 2)) {
+            assertEquals('[', input.read());
+            assertEquals(']', input.read());
+            assertEquals(0xff, input.read());
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    @DisplayName("Test an empty file is at its end right away")
+    public void testEmptyFile() throws Exception {
+        // SetUp
+        Path path = Files.createFile(directory.resolve("empty.json"));
+
+        // Execute & Validate
+        try (InputStream input = new MappedFileInputStream(path)) {
+            assertEquals(-1, input.read(new byte[8], 0, 8));
+        }
+    }
+}
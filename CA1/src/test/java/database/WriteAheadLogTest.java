@@ -0,0 +1,155 @@
+package database;
+
+import model.Comment;
+import model.Commodity;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class WriteAheadLogTest {
+    private final Database database = Database.getInstance();
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    public void tearDown() {
+        database.setMutationListener(null);
+    }
+
+    private WriteAheadLog openLog() throws Exception {
+        WriteAheadLog log = new WriteAheadLog(directory.resolve("baloot.wal"), 1);
+        log.open();
+        database.setMutationListener(log);
+        return log;
+    }
+
+    @Test
+    @DisplayName("Test replay restores credit, buy lists, ratings, votes and categories")
+    public void testReplayRestoresChanges() throws Exception {
+        // SetUp
+        WriteAheadLog log = openLog();
+        User user = new User("wal-test-user", "", "", "", "");
+        database.addUser(user);
+        log.userAdded(user);
+        Commodity commodity = DatabaseTest.createAnonymousCommodity("wal-test-commodity");
+        commodity.setInStock(1);
+        database.addCommodity(commodity);
+        Comment comment = new Comment(database.nextCommentId(), "wal@test.ir", "wal-test-user", -600, "logged");
+        database.addComment(comment);
+        log.commentAdded(comment);
+
+        user.addCredit(50);
+        user.addBuyItem(commodity);
+        log.buyListItemChanged(user, commodity.getId());
+        commodity.addRate("wal-test-user", 7);
+        comment.addUserVote("wal-test-user", "dislike");
+        database.updateCommodityCategories(commodity, new ArrayList<>(List.of("wal-test-category")));
+        log.categoriesChanged(commodity);
+        log.close();
+        database.setMutationListener(null);
+
+        // Execute: forget the changes, as a restart from the old data would.
+        user.setCredit(0);
+        user.setBuyList(Map.of());
+        commodity.setUserRate(Map.of());
+        comment.setUserVote(Map.of());
+        database.updateCommodityCategories(commodity, new ArrayList<>());
+        int records = new WriteAheadLog(directory.resolve("baloot.wal"), 1).replay(database);
+
+        // Validate
+        assertEquals(7, records);
+        assertEquals(50, user.getCredit());
+        assertEquals(Map.of("wal-test-commodity", 1), user.getBuyList());
+        assertEquals(Map.of("wal-test-user", 7), commodity.getUserRate());
+        assertEquals(1, comment.getDislike());
+        assertEquals(List.of(commodity), database.getCommoditiesByCategory("wal-test-category"));
+    }
+
+    @Test
+    @DisplayName("Test replay stops at a torn record and cuts it off")
+    public void testReplayDropsTornTail() throws Exception {
+        // SetUp
+        WriteAheadLog log = openLog();
+        User user = new User("wal-test-torn-user", "", "", "", "");
+        database.addUser(user);
+        user.addCredit(10);
+        user.addCredit(20);
+        log.close();
+        database.setMutationListener(null);
+
+        Path path = directory.resolve("baloot.wal");
+        long valid = Files.size(path);
+        Files.write(path, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        user.setCredit(0);
+
+        // Execute
+        int records = new WriteAheadLog(path, 1).replay(database);
+
+        // Validate
+        assertEquals(2, records);
+        assertEquals(30, user.getCredit());
+        assertEquals(valid, Files.size(path));
+    }
+
+    @Test
+    @DisplayName("Test records after a rotation go to a fresh file and survive discarding the old one")
+    public void testRotation() throws Exception {
+        // SetUp
+        WriteAheadLog log = openLog();
+        User user = new User("wal-test-rotated-user", "", "", "", "");
+        database.addUser(user);
+        user.addCredit(10);
+
+        // Execute
+        log.rotate();
+        user.addCredit(5);
+        log.discardRotated();
+        log.close();
+        database.setMutationListener(null);
+        user.setCredit(0);
+
+        // Validate
+        assertEquals(1, new WriteAheadLog(directory.resolve("baloot.wal"), 1).replay(database));
+        assertEquals(15, user.getCredit());
+        assertFalse(Files.exists(directory.resolve("baloot.wal.old")));
+    }
+
+    @Test
+    @DisplayName("Test a failed write is reported and refuses further changes")
+    public void testFailedWriteRefusesChanges() throws Exception {
+        // SetUp: every write to /dev/full fails with no space left.
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full));
+        WriteAheadLog log = new WriteAheadLog(full, 60_000);
+        log.open();
+        database.setMutationListener(log);
+        User user = new User("wal-failing-user", "", "", "", "");
+        database.addUser(user);
+        log.userAdded(user);
+
+        // Execute
+        assertThrows(IOException.class, log::sync);
+
+        // Validate
+        assertNotNull(log.getFailure());
+        assertThrows(UncheckedIOException.class, () -> log.userAdded(user));
+        assertThrows(UncheckedIOException.class, () -> user.addCredit(10));
+        assertEquals(0, user.getCredit());
+        assertThrows(IOException.class, log::close);
+    }
+}
@@ -11,6 +11,9 @@ import org.junit.jupiter.params.provider.ValueSource;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -223,4 +226,53 @@ public class CommentTest {
 
         assertEquals("Invalid vote type", exception.getMessage());
     }
+
+    @Test
+    @DisplayName("Test addUserVote method moves a changed vote between the counters")
+    public void testChangedVoteMovesBetweenCounters() {
+        // Execute
+        comment.addUserVote("Alice", "like");
+        comment.addUserVote("Bob", "like");
+        comment.addUserVote("Alice", "dislike");
+
+        // Validate
+        assertEquals(1, comment.getLike());
+        assertEquals(1, comment.getDislike());
+        assertEquals(Map.of("Alice", "dislike", "Bob", "like"), comment.getUserVote());
+    }
+
+    @Test
+    @DisplayName("Test concurrent votes are all counted")
+    public void testConcurrentVotes() throws Exception {
+        // SetUp
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Execute
+        for (int i = 0; i < 4000; i++) {
+            String username = "voter-" + i;
+            String vote = i % 4 == 0 ? "dislike" : "like";
+            executor.submit(() -> comment.addUserVote(username, vote));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Validate
+        assertEquals(3000, comment.getLike());
+        assertEquals(1000, comment.getDislike());
+        assertEquals(4000, comment.getUserVote().size());
+    }
+
+    @Test
+    @DisplayName("Test addUserVote method counts a vote without a username, as one more voter")
+    public void testAddUserVoteNullUsername() {
+        // Execute
+        comment.addUserVote(null, "like");
+        comment.addUserVote("Alice", "dislike");
+        comment.addUserVote(null, "dislike");
+
+        // Validate
+        assertEquals(0, comment.getLike());
+        assertEquals(2, comment.getDislike());
+        assertEquals("dislike", comment.getUserVote().get(null));
+    }
 }
@@ -8,6 +8,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class CommodityTest {
@@ -117,6 +119,24 @@ public class CommodityTest {
         // Teardown -> Garbage Collector
     }
 
+    @Test
+    @DisplayName("Test addRate method keeps a rating without a username, as one more rater")
+    public void testAddRateNullUsername() throws IllegalArgumentException {
+        // SetUp
+        Commodity commodity = createAnonymousCommodityWithInitRate(3);
+
+        // Execute
+        commodity.addRate(null, 4);
+        commodity.addRate(null, 7);
+        commodity.addRate("Alice", 5);
+
+        // Validate
+        assertEquals(5, commodity.getRating(), 0.001);
+        assertEquals(7, commodity.getUserRate().get(null));
+
+        // Teardown -> Garbage Collector
+    }
+
     @Test
     @DisplayName("Test calcRating method with multiple ratings with initRate")
     public void testCalcRatingMultipleRatings() throws IllegalArgumentException {
@@ -131,4 +151,28 @@ public class CommodityTest {
 
         // Teardown -> Garbage Collector
     }
+
+    @Test
+    @DisplayName("Test the running rating matches a full recount after overwrites and a restore")
+    public void testRunningRatingMatchesRecount() throws IllegalArgumentException {
+        // SetUp
+        Commodity commodity = createAnonymousCommodityWithInitRate(3);
+        Random random = new Random(42);
+
+        // Execute
+        for (int i = 0; i < 1000; i++)
+            commodity.addRate("user-" + random.nextInt(50), 1 + random.nextInt(10));
+        Commodity restored = createAnonymousCommodityWithInitRate(3);
+        restored.setUserRate(commodity.getUserRate());
+        restored.addRate("user-0", 10);
+        commodity.addRate("user-0", 10);
+
+        // Validate
+        float sum = 0;
+        for (int score : commodity.getUserRate().values())
+            sum += score;
+        assertEquals((3 + sum) / (commodity.getUserRate().size() + 1), commodity.getRating());
+        assertEquals(commodity.getRating(), restored.getRating());
+        assertThrows(UnsupportedOperationException.class, () -> commodity.getUserRate().put("user-0", 1));
+    }
 }
@@ -0,0 +1,63 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntIntMapTest {
+    @Test
+    @DisplayName("Test random puts, adds and removes match a HashMap")
+    public void randomOperationsMatchHashMapTest() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            // A small key range forces long probe runs, collisions and removals inside them.
+            int key = random.nextInt(200) - 20;
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.putInt(key, i);
+                    expected.put(key, i);
+                }
+                case 1 -> assertEquals(expected.merge(key, 1, Integer::sum), map.addTo(key, 1));
+                default -> assertEquals(expected.remove(key) != null, map.removeInt(key));
+            }
+        }
+
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    @DisplayName("Test key 0 is stored apart from the free-slot marker")
+    public void zeroKeyTest() {
+        IntIntMap map = new IntIntMap();
+
+        map.putInt(0, 5);
+
+        assertTrue(map.containsInt(0));
+        assertEquals(5, map.get(0));
+        assertEquals(1, map.size());
+        assertEquals(5, map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertNull(map.get(0));
+    }
+
+    @Test
+    @DisplayName("Test missing keys give the default value and null through the Map methods")
+    public void missingKeyTest() {
+        IntIntMap map = new IntIntMap();
+
+        assertEquals(-1, map.getInt(3, -1));
+        assertNull(map.get(3));
+        assertNull(map.get("3"));
+        assertFalse(map.removeInt(3));
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,61 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringIntMapTest {
+    @Test
+    @DisplayName("Test random puts and removes match a HashMap")
+    public void randomOperationsMatchHashMapTest() {
+        StringIntMap map = new StringIntMap();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            // A small key range forces long probe runs, collisions and removals inside them.
+            String key = "user-" + random.nextInt(200);
+            if (random.nextBoolean()) {
+                Integer previous = expected.put(key, i);
+                assertEquals(previous == null ? -1 : previous, map.putInt(key, i, -1));
+            } else {
+                assertEquals(expected.remove(key) != null, map.removeString(key));
+            }
+        }
+
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+    }
+
+    @Test
+    @DisplayName("Test the null key is stored apart from the free-slot marker")
+    public void nullKeyTest() {
+        StringIntMap map = new StringIntMap();
+
+        assertEquals(0, map.putInt(null, 5, 0));
+
+        assertTrue(map.containsKey(null));
+        assertEquals(5, map.get(null));
+        assertEquals(1, map.size());
+        assertEquals(5, map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertNull(map.get(null));
+    }
+
+    @Test
+    @DisplayName("Test missing keys give the default value and null through the Map methods")
+    public void missingKeyTest() {
+        StringIntMap map = new StringIntMap();
+
+        assertEquals(-1, map.getInt("missing", -1));
+        assertNull(map.get("missing"));
+        assertNull(map.get(3));
+        assertFalse(map.removeString("missing"));
+        assertTrue(map.isEmpty());
+    }
+}
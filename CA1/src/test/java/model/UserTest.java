@@ -1,5 +1,7 @@
 package model;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import exceptions.*;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.DisplayName;
@@ -270,4 +272,23 @@ public class UserTest {
         assertFalse(user.getBuyList().containsKey(commodity_id));
     }
 
+    @Test
+    @DisplayName("Test buy list, purchased list and rates serialize to the same JSON as plain maps")
+    public void userMapsJsonRoundTripTest() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        User user = createAnonymousUser();
+        user.setBuyList(Map.of("1", 2, "commodity-json-test", 1));
+        user.setPurchasedList(Map.of("2", 5));
+        user.setCommoditiesRates(Map.of(0, 3, 7, 9));
+
+        JsonNode json = objectMapper.valueToTree(user);
+        User restored = objectMapper.readValue(objectMapper.writeValueAsString(user), User.class);
+
+        assertEquals(objectMapper.valueToTree(Map.of("1", 2, "commodity-json-test", 1)), json.get("buyList"));
+        assertEquals(objectMapper.valueToTree(Map.of("2", 5)), json.get("purchasedList"));
+        assertEquals(objectMapper.valueToTree(Map.of("0", 3, "7", 9)), json.get("commoditiesRates"));
+        assertEquals(Map.of("1", 2, "commodity-json-test", 1), restored.getBuyList());
+        assertEquals(Map.of("2", 5), restored.getPurchasedList());
+        assertEquals(Map.of(0, 3, 7, 9), restored.getCommoditiesRates());
+    }
 }
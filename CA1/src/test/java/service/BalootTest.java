@@ -0,0 +1,249 @@
+package service;
+
+import database.DataParser;
+import database.Database;
+import database.DatabaseSnapshot;
+import database.WriteAheadLog;
+import exceptions.InsufficientCredit;
+import exceptions.NotInStock;
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BalootTest {
+    private static Baloot baloot;
+    private static ArrayList<User> previousUsers;
+    private static ArrayList<Provider> previousProviders;
+    private static ArrayList<Commodity> previousCommodities;
+    private static ArrayList<Comment> previousComments;
+
+    @BeforeAll
+    public static void setUp() {
+        baloot = Baloot.getInstance();
+        Database database = Database.getInstance();
+        previousUsers = database.getUsers();
+        previousProviders = database.getProviders();
+        previousCommodities = database.getCommodities();
+        previousComments = database.getComments();
+
+        String[][] categories = {{"baloot-test-a"}, {"baloot-test-b"}, {"baloot-test-a", "baloot-test-b"}, {}};
+        for (int i = 0; i < 12; i++) {
+            Commodity commodity = new Commodity();
+            commodity.setId("baloot-test-" + i);
+            commodity.setName("baloot test " + i);
+            commodity.setCategories(new ArrayList<>(List.of(categories[i % categories.length])));
+            commodity.setRating(i % 5);
+            Database.getInstance().addCommodity(commodity);
+        }
+    }
+
+    // The singletons outlive this class, so the records it added are dropped.
+    @AfterAll
+    public static void tearDown() {
+        Database database = Database.getInstance();
+        database.setUsers(previousUsers);
+        database.setProviders(previousProviders);
+        database.setCommodities(previousCommodities);
+        database.setComments(previousComments);
+    }
+
+    private static ArrayList<Commodity> referenceSuggestions(Commodity commodity, int count) {
+        ArrayList<Commodity> candidates = new ArrayList<>(Database.getInstance().getCommodities());
+        candidates.remove(commodity);
+        candidates.sort(Comparator.comparingDouble((Commodity other) ->
+                11 * baloot.isInSimilarCategoryWithFirstCommodity(commodity, other) + other.getRating()).reversed());
+
+        return new ArrayList<>(candidates.subList(0, Math.min(count, candidates.size())));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 4, 7, 100})
+    @DisplayName("Test suggestSimilarCommodities matches a full sort of every score")
+    public void testSuggestionsMatchFullSort(int count) throws Exception {
+        for (String id : List.of("baloot-test-0", "baloot-test-1", "baloot-test-2", "baloot-test-3")) {
+            // SetUp
+            Commodity commodity = baloot.getCommodityById(id);
+
+            // Execute
+            ArrayList<Commodity> suggestions = baloot.suggestSimilarCommodities(commodity, count);
+
+            // Validate
+            assertEquals(referenceSuggestions(commodity, count), suggestions);
+        }
+    }
+
+    @Test
+    @DisplayName("Test cached suggestions follow rating changes")
+    public void testCachedSuggestionsFollowRatings() throws Exception {
+        // SetUp
+        Commodity commodity = baloot.getCommodityById("baloot-test-4");
+        Commodity outsider = baloot.getCommodityById("baloot-test-7");
+        assertEquals(referenceSuggestions(commodity, 4), baloot.suggestSimilarCommodities(commodity));
+        assertFalse(baloot.suggestSimilarCommodities(commodity).contains(outsider));
+
+        // Execute
+        outsider.setInitRate(1000);
+        outsider.addRate("baloot-test-user", 10);
+
+        // Validate
+        assertEquals(referenceSuggestions(commodity, 4), baloot.suggestSimilarCommodities(commodity));
+        assertTrue(baloot.suggestSimilarCommodities(commodity).contains(outsider));
+    }
+
+    @Test
+    @DisplayName("Test cached suggestions follow category changes")
+    public void testCachedSuggestionsFollowCategories() throws Exception {
+        // SetUp
+        Commodity commodity = baloot.getCommodityById("baloot-test-11");
+        ArrayList<Commodity> before = baloot.suggestSimilarCommodities(commodity);
+        assertEquals(referenceSuggestions(commodity, 4), before);
+
+        // Execute
+        baloot.updateCommodityCategories("baloot-test-11", new ArrayList<>(List.of("baloot-test-a")));
+
+        // Validate
+        assertEquals(referenceSuggestions(commodity, 4), baloot.suggestSimilarCommodities(commodity));
+        assertNotEquals(before, baloot.suggestSimilarCommodities(commodity));
+    }
+
+    private static Commodity addStockedCommodity(String id, int price, int inStock) {
+        Commodity commodity = new Commodity();
+        commodity.setId(id);
+        commodity.setPrice(price);
+        commodity.setInStock(inStock);
+        Database.getInstance().addCommodity(commodity);
+        return commodity;
+    }
+
+    private static User addUserWithCredit(String username, float credit) throws Exception {
+        User user = new User(username, "", "", "", "");
+        user.addCredit(credit);
+        Database.getInstance().addUser(user);
+        return user;
+    }
+
+    @Test
+    @DisplayName("Test a failed checkout changes neither credit nor stock")
+    public void testFailedCheckoutIsAtomic() throws Exception {
+        // SetUp
+        Commodity available = addStockedCommodity("baloot-test-stocked", 10, 5);
+        Commodity scarce = addStockedCommodity("baloot-test-scarce", 10, 1);
+        User user = addUserWithCredit("baloot-test-buyer", 1000);
+        user.setBuyList(Map.of(available.getId(), 2, scarce.getId(), 2));
+
+        // Execute & Validate
+        assertThrows(NotInStock.class, () -> baloot.withdrawPayableAmount(user));
+        assertEquals(1000, user.getCredit());
+        assertEquals(5, available.getInStock());
+        assertEquals(1, scarce.getInStock());
+        assertEquals(2, user.getBuyList().size());
+        assertTrue(user.getPurchasedList().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test a checkout short of both credit and stock fails on the credit first")
+    public void testCheckoutChecksCreditBeforeStock() throws Exception {
+        // SetUp
+        Commodity scarce = addStockedCommodity("baloot-test-scarce-and-dear", 100, 1);
+        User user = addUserWithCredit("baloot-test-poor-buyer", 50);
+        user.setBuyList(Map.of(scarce.getId(), 2));
+
+        // Execute & Validate
+        assertThrows(InsufficientCredit.class, () -> baloot.withdrawPayableAmount(user));
+        assertEquals(50, user.getCredit());
+        assertEquals(1, scarce.getInStock());
+    }
+
+    @Test
+    @DisplayName("Test concurrent checkouts never oversell a commodity")
+    public void testConcurrentCheckoutsDoNotOversell() throws Exception {
+        // SetUp
+        int buyers = 16;
+        Commodity contested = addStockedCommodity("baloot-test-contested", 1, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Execute
+        for (int i = 0; i < buyers; i++) {
+            User user = addUserWithCredit("baloot-test-racer-" + i, 100);
+            user.setBuyList(Map.of(contested.getId(), 1));
+            futures.add(executor.submit(() -> {
+                try {
+                    baloot.withdrawPayableAmount(user);
+                    succeeded.incrementAndGet();
+                } catch (NotInStock ignored) {
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        // Validate
+        assertEquals(5, succeeded.get());
+        assertEquals(0, contested.getInStock());
+    }
+
+    @Test
+    @DisplayName("Test a restore replays the log before applying catalog files newer than the snapshot")
+    public void testRestoreSnapshotAppliesNewerCatalogFilesLast() throws Exception {
+        // SetUp
+        DatabaseSnapshot snapshot = mock(DatabaseSnapshot.class);
+        WriteAheadLog log = mock(WriteAheadLog.class);
+        DataParser dataParser = mock(DataParser.class);
+        Path directory = Path.of("baloot-test-data");
+        when(snapshot.load()).thenReturn(true);
+        when(dataParser.getDataDirectory()).thenReturn(directory);
+        when(snapshot.isNewerThan(List.of(directory.resolve(DataParser.PROVIDERS_FILE)))).thenReturn(true);
+        when(snapshot.isNewerThan(List.of(directory.resolve(DataParser.COMMODITIES_FILE)))).thenReturn(false);
+
+        // Execute
+        boolean restored = baloot.restoreSnapshot(snapshot, log, dataParser);
+
+        // Validate
+        assertTrue(restored);
+        InOrder order = inOrder(snapshot, log, dataParser);
+        order.verify(snapshot).load();
+        order.verify(log).replay(Database.getInstance());
+        order.verify(dataParser).reloadCommodities();
+        verify(dataParser, never()).reloadProviders();
+    }
+
+    @Test
+    @DisplayName("Test a restore without a usable snapshot leaves loading to the JSON files")
+    public void testRestoreSnapshotDamaged() throws Exception {
+        // SetUp
+        DatabaseSnapshot snapshot = mock(DatabaseSnapshot.class);
+        WriteAheadLog log = mock(WriteAheadLog.class);
+        DataParser dataParser = mock(DataParser.class);
+        when(snapshot.load()).thenThrow(new IOException("Snapshot is damaged"));
+
+        // Execute & Validate
+        assertFalse(baloot.restoreSnapshot(snapshot, log, dataParser));
+        verifyNoInteractions(log, dataParser);
+    }
+}
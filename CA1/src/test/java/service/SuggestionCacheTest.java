@@ -0,0 +1,131 @@
+package service;
+
+import model.Commodity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SuggestionCacheTest {
+    @Mock
+    private Baloot baloot;
+
+    private SuggestionCache cache;
+    private final Commodity owner = new Commodity();
+    private final Commodity suggested = new Commodity();
+    private final Commodity unrelated = new Commodity();
+
+    @BeforeEach
+    public void setUp() {
+        owner.setId("suggestion-cache-test-owner");
+        suggested.setId("suggestion-cache-test-suggested");
+        unrelated.setId("suggestion-cache-test-unrelated");
+        cache = new SuggestionCache(baloot, 1, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Test a catalog reload only drops the lists its changes could alter")
+    public void testCatalogReloadedDropsAffectedEntries() {
+        // Define mock behave
+        when(baloot.suggestSimilarCommodities(owner, 1)).thenReturn(new ArrayList<>(List.of(suggested)));
+        when(baloot.getSimilarityScore(owner, suggested)).thenReturn(5f);
+
+        // Exercise
+        cache.get(owner);
+        cache.catalogReloaded(Map.of(), Set.of(unrelated), List.of(), Set.of());
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(1)).suggestSimilarCommodities(owner, 1);
+
+        // Exercise
+        cache.catalogReloaded(Map.of(), Set.of(), List.of(), Set.of(suggested));
+        List<Commodity> suggestions = cache.get(owner);
+
+        // Validate
+        assertEquals(List.of(suggested), suggestions);
+        verify(baloot, times(2)).suggestSimilarCommodities(owner, 1);
+
+        // Exercise
+        cache.catalogReloaded(Map.of(suggested, new Commodity()), Set.of(), List.of(), Set.of());
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(3)).suggestSimilarCommodities(owner, 1);
+
+        // Exercise
+        cache.catalogReloaded(Map.of(owner, new Commodity()), Set.of(), List.of(), Set.of());
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(4)).suggestSimilarCommodities(owner, 1);
+    }
+
+    @Test
+    @DisplayName("Test a commodity without a shared category drops the lists its rating can enter")
+    public void testRatingChangedDropsListsTheRatingReaches() {
+        // Define mock behave
+        when(baloot.suggestSimilarCommodities(owner, 1)).thenReturn(new ArrayList<>(List.of(suggested)));
+        when(baloot.getSimilarityScore(owner, suggested)).thenReturn(5f);
+        when(baloot.getSimilarityScore(owner, unrelated)).thenReturn(6f);
+
+        // Exercise
+        cache.get(owner);
+        cache.ratingChanged(unrelated, 0);
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(1)).suggestSimilarCommodities(owner, 1);
+
+        // Exercise
+        unrelated.setRating(6);
+        cache.ratingChanged(unrelated, 0);
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(2)).suggestSimilarCommodities(owner, 1);
+    }
+
+    @Test
+    @DisplayName("Test changes are applied on the worker and lists are ranked afresh until they are")
+    public void testChangesAppliedOnWorker() {
+        // Initiate values
+        ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        cache = new SuggestionCache(baloot, 1, tasks::add);
+
+        // Define mock behave
+        when(baloot.suggestSimilarCommodities(owner, 1)).thenReturn(new ArrayList<>(List.of(suggested)));
+        when(baloot.getSimilarityScore(owner, suggested)).thenReturn(5f);
+
+        // Exercise
+        cache.get(owner);
+        tasks.forEach(Runnable::run);
+        tasks.clear();
+        cache.get(owner);
+        cache.ratingChanged(suggested, 0);
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(2)).suggestSimilarCommodities(owner, 1);
+
+        // Exercise
+        while (!tasks.isEmpty())
+            tasks.poll().run();
+        cache.get(owner);
+
+        // Validate
+        verify(baloot, times(2)).suggestSimilarCommodities(owner, 1);
+    }
+}
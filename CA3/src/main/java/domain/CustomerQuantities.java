@@ -0,0 +1,76 @@
+package domain;
+
+// Sum and count of the quantities each customer ordered, kept in int arrays
+// with linear probing, so a lookup neither scans the history nor boxes. A
+// count of 0 marks a free slot, as every stored customer has an order.
+class CustomerQuantities {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] customers = new int[INITIAL_CAPACITY];
+    private int[] sums = new int[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private static int slotOf(int customer, int mask) {
+        int hash = customer * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(int customer) {
+        int mask = customers.length - 1;
+        int slot = slotOf(customer, mask);
+        while (counts[slot] != 0 && customers[slot] != customer)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    void add(int customer, int quantity) {
+        int slot = find(customer);
+        if (counts[slot] == 0) {
+            if ((size + 1) * 4 > customers.length * 3) {
+                resize();
+                slot = find(customer);
+            }
+            customers[slot] = customer;
+            size++;
+        }
+
+        sums[slot] += quantity;
+        counts[slot]++;
+    }
+
+    int sum(int customer) {
+        return sums[find(customer)];
+    }
+
+    int count(int customer) {
+        return counts[find(customer)];
+    }
+
+    void clear() {
+        customers = new int[INITIAL_CAPACITY];
+        sums = new int[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private void resize() {
+        int[] oldCustomers = customers;
+        int[] oldSums = sums;
+        int[] oldCounts = counts;
+        customers = new int[oldCustomers.length * 2];
+        sums = new int[oldCustomers.length * 2];
+        counts = new int[oldCustomers.length * 2];
+
+        for (int slot = 0; slot < oldCustomers.length; slot++) {
+            if (oldCounts[slot] == 0)
+                continue;
+
+            int target = find(oldCustomers[slot]);
+            customers[target] = oldCustomers[slot];
+            sums[target] = oldSums[slot];
+            counts[target] = oldCounts[slot];
+        }
+    }
+}
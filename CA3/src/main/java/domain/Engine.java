@@ -1,59 +1,34 @@
 package domain;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 public class Engine {
 
-    ArrayList<Order> orderHistory;
+    OrderHistory orderHistory;
 
     public Engine() {
-        orderHistory = new ArrayList<>();
+        orderHistory = new OrderHistory();
     }
 
+    // Reads the running totals of the history instead of scanning it. A
+    // customer without orders still divides by zero once there is history.
     int getAverageOrderQuantityByCustomer(int customer) {
-        var sum = 0;
-        var count = 0;
-
-        for (Order oldOrder : orderHistory) {
-            if (oldOrder.customer == customer) {
-                sum += oldOrder.quantity;
-                count++;
-            }
-        }
-
         if (orderHistory.size() == 0) {
             return 0;
         }
 
-        return sum / count;
+        var quantities = orderHistory.getQuantitiesByCustomer();
+        return quantities.sum(customer) / quantities.count(customer);
     }
 
+    // Each price's pattern is advanced as orders are added, see QuantityPattern.
     int getQuantityPatternByPrice(int price) {
         if (orderHistory.size() == 0) {
             return 0;
         }
 
-        var diff = 0;
-        var previous = orderHistory.get(0);
-
-        for (Order currentOrder : orderHistory) {
-            if (currentOrder.id == previous.id) {
-                continue;
-            }
-
-            if (currentOrder.price != price) {
-                continue;
-            }
-
-            if (diff == 0) {
-                diff = currentOrder.quantity - previous.quantity;
-                previous = currentOrder;
-            } else if (diff != currentOrder.quantity - previous.quantity) {
-                return 0;
-            }
-        }
-
-        return diff;
+        return orderHistory.getQuantityPattern(price);
     }
 
     int getCustomerFraudulentQuantity(Order order) {
@@ -80,4 +55,30 @@ public class Engine {
         orderHistory.add(order);
         return quantity;
     }
+
+    // Same as calling addOrderAndGetFraudulentQuantity for each order in turn,
+    // with the results in an int array in the same order.
+    public int[] addOrdersAndGetFraudulentQuantities(Order[] orders) {
+        orderHistory.ensureCapacity(orderHistory.size() + orders.length);
+        int[] quantities = new int[orders.length];
+        for (int i = 0; i < orders.length; i++)
+            quantities[i] = addOrderAndGetFraudulentQuantity(orders[i]);
+
+        return quantities;
+    }
+
+    public int[] addOrdersAndGetFraudulentQuantities(List<Order> orders) {
+        orderHistory.ensureCapacity(orderHistory.size() + orders.size());
+        int[] quantities = new int[orders.size()];
+        int i = 0;
+        for (Order order : orders)
+            quantities[i++] = addOrderAndGetFraudulentQuantity(order);
+
+        return quantities;
+    }
+
+    // A subscriber for continuous feeds, see OrderSubscriber.
+    public OrderSubscriber subscribe(ObjIntConsumer<Order> sink) {
+        return new OrderSubscriber(this, sink, OrderSubscriber.DEFAULT_BATCH_SIZE);
+    }
 }
@@ -0,0 +1,61 @@
+package domain;
+
+// Set of ints, such as order IDs, kept in an int array with linear probing.
+// Slot value 0 marks a free slot; whether 0 is in the set is kept aside.
+class IntSet {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+    private boolean hasZero;
+
+    private static int slotOf(int value, int mask) {
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(int value) {
+        int mask = values.length - 1;
+        int slot = slotOf(value, mask);
+        while (values[slot] != 0 && values[slot] != value)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    void add(int value) {
+        if (value == 0) {
+            hasZero = true;
+            return;
+        }
+
+        int slot = find(value);
+        if (values[slot] != 0)
+            return;
+
+        if ((size + 1) * 4 > values.length * 3) {
+            resize();
+            slot = find(value);
+        }
+        values[slot] = value;
+        size++;
+    }
+
+    boolean contains(int value) {
+        return value == 0 ? hasZero : values[find(value)] != 0;
+    }
+
+    void clear() {
+        values = new int[INITIAL_CAPACITY];
+        size = 0;
+        hasZero = false;
+    }
+
+    private void resize() {
+        int[] oldValues = values;
+        values = new int[oldValues.length * 2];
+        for (int value : oldValues)
+            if (value != 0)
+                values[find(value)] = value;
+    }
+}
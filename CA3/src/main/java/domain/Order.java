@@ -18,4 +18,9 @@ public class Order {
         }
         return false;
     }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(id);
+    }
 }
@@ -0,0 +1,85 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+// The engine's order list, with per-customer totals, the set of order IDs and
+// the quantity pattern of each price kept alongside. Orders only enter through
+// add, which indexes each one as it comes, and only leave all together through
+// clear, so the indexes never fall behind the list. Orders changed after they
+// were added are not noticed.
+class OrderHistory implements Iterable<Order> {
+    private final ArrayList<Order> orders = new ArrayList<>();
+    private final CustomerQuantities quantitiesByCustomer = new CustomerQuantities();
+    private final IntSet ids = new IntSet();
+    private final QuantityPatterns patternsByPrice = new QuantityPatterns();
+
+    void add(Order order) {
+        orders.add(order);
+        if (order != null)
+            index(order);
+    }
+
+    void addAll(Collection<Order> orders) {
+        ensureCapacity(size() + orders.size());
+        for (Order order : orders)
+            add(order);
+    }
+
+    void ensureCapacity(int minCapacity) {
+        orders.ensureCapacity(minCapacity);
+    }
+
+    void clear() {
+        orders.clear();
+        quantitiesByCustomer.clear();
+        ids.clear();
+        patternsByPrice.clear();
+    }
+
+    int size() {
+        return orders.size();
+    }
+
+    boolean isEmpty() {
+        return orders.isEmpty();
+    }
+
+    Order get(int index) {
+        return orders.get(index);
+    }
+
+    // Orders are equal by ID, so an order is in the history when its ID is.
+    boolean contains(Order order) {
+        return ids.contains(order.id);
+    }
+
+    CustomerQuantities getQuantitiesByCustomer() {
+        return quantitiesByCustomer;
+    }
+
+    // The quantity step of the orders at the price, or 0 when there is none
+    // or it was broken.
+    int getQuantityPattern(int price) {
+        QuantityPattern pattern = patternsByPrice.get(price);
+        return pattern == null ? 0 : pattern.getDiff();
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return Collections.unmodifiableList(orders).iterator();
+    }
+
+    private void index(Order order) {
+        quantitiesByCustomer.add(order.customer, order.quantity);
+        ids.add(order.id);
+        QuantityPattern pattern = patternsByPrice.get(order.price);
+        if (pattern == null) {
+            pattern = new QuantityPattern(orders.get(0));
+            patternsByPrice.put(order.price, pattern);
+        }
+        pattern.add(order);
+    }
+}
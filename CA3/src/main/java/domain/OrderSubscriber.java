@@ -0,0 +1,57 @@
+package domain;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.ObjIntConsumer;
+
+// Feeds a continuous order stream into an engine, handing each order and its
+// fraudulent quantity to the sink as an int. Publishers call onNext one at a
+// time, which is all the engine needs; nothing else should use the engine
+// while the stream runs. Orders are requested a batch at a time.
+public class OrderSubscriber implements Flow.Subscriber<Order> {
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final Engine engine;
+    private final ObjIntConsumer<Order> sink;
+    private final int batchSize;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private int pending;
+
+    OrderSubscriber(Engine engine, ObjIntConsumer<Order> sink, int batchSize) {
+        this.engine = engine;
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    // Completes when the publisher does, or fails with its error.
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        pending = batchSize;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(Order order) {
+        sink.accept(order, engine.addOrderAndGetFraudulentQuantity(order));
+        if (--pending == 0) {
+            pending = batchSize;
+            subscription.request(batchSize);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(null);
+    }
+}
@@ -0,0 +1,35 @@
+package domain;
+
+// Where getQuantityPatternByPrice's walk over the history stands for one
+// price, advanced one order at a time: the order compared against, which
+// starts as the first order of the history, the quantity step once one is
+// set, and whether a later order broke it. Like the walk, the order compared
+// against stops moving once the step is set.
+class QuantityPattern {
+    private int previousId;
+    private int previousQuantity;
+    private int diff;
+    private boolean broken;
+
+    QuantityPattern(Order first) {
+        previousId = first.id;
+        previousQuantity = first.quantity;
+    }
+
+    void add(Order order) {
+        if (broken || order.id == previousId)
+            return;
+
+        if (diff == 0) {
+            diff = order.quantity - previousQuantity;
+            previousId = order.id;
+            previousQuantity = order.quantity;
+        } else if (diff != order.quantity - previousQuantity) {
+            broken = true;
+        }
+    }
+
+    int getDiff() {
+        return broken ? 0 : diff;
+    }
+}
@@ -0,0 +1,67 @@
+package domain;
+
+// Quantity pattern of each price, kept in arrays with linear probing, so a
+// lookup neither boxes the price nor follows a chain of nodes. A null pattern
+// marks a free slot.
+class QuantityPatterns {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private QuantityPattern[] patterns = new QuantityPattern[INITIAL_CAPACITY];
+    private int size;
+
+    private static int slotOf(int price, int mask) {
+        int hash = price * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int find(int price) {
+        int mask = prices.length - 1;
+        int slot = slotOf(price, mask);
+        while (patterns[slot] != null && prices[slot] != price)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    // The pattern of the price, or null when no order had it.
+    QuantityPattern get(int price) {
+        return patterns[find(price)];
+    }
+
+    void put(int price, QuantityPattern pattern) {
+        int slot = find(price);
+        if (patterns[slot] == null) {
+            if ((size + 1) * 4 > prices.length * 3) {
+                resize();
+                slot = find(price);
+            }
+            prices[slot] = price;
+            size++;
+        }
+
+        patterns[slot] = pattern;
+    }
+
+    void clear() {
+        prices = new int[INITIAL_CAPACITY];
+        patterns = new QuantityPattern[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private void resize() {
+        int[] oldPrices = prices;
+        QuantityPattern[] oldPatterns = patterns;
+        prices = new int[oldPrices.length * 2];
+        patterns = new QuantityPattern[oldPrices.length * 2];
+
+        for (int slot = 0; slot < oldPrices.length; slot++) {
+            if (oldPatterns[slot] == null)
+                continue;
+
+            int target = find(oldPrices[slot]);
+            prices[target] = oldPrices[slot];
+            patterns[target] = oldPatterns[slot];
+        }
+    }
+}
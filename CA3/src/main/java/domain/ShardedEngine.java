@@ -0,0 +1,318 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// The fraud engine spread over worker threads, giving the same quantities as
+// Engine for the same orders in the same order. Each shard has its own
+// thread and owns the IDs, the customer totals and the price patterns whose
+// key hashes to it, so shards share no state and take no locks. A batch
+// goes through three steps, each shard only touching its own orders:
+// - The calling thread queues each order's position at the shard owning its
+//   ID. That shard drops duplicates and passes the positions of the other
+//   orders, through per-shard queues, to the shards owning their customer
+//   and their price.
+// - Each customer shard finds its first order from a customer without
+//   history, where Engine divides by zero. The earliest one over all shards
+//   ends the batch.
+// - Each shard records the IDs, totals and patterns of the orders before
+//   that end and computes their quantities.
+// One batch runs at a time.
+public class ShardedEngine implements AutoCloseable {
+    private final Shard[] shards;
+    // The first order of the history, where every price pattern starts.
+    private Order first;
+
+    public ShardedEngine(int shardCount) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("Shard count must be positive");
+
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard(i);
+    }
+
+    private int ownerOf(int key) {
+        return Math.floorMod(key, shards.length);
+    }
+
+    // Growable list of batch positions, in batch order.
+    private static class Positions {
+        private int[] positions = new int[16];
+        private int size;
+
+        void add(int position) {
+            if (size == positions.length)
+                positions = Arrays.copyOf(positions, size * 2);
+            positions[size++] = position;
+        }
+
+        int get(int index) {
+            return positions[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        // Appends the positions of several lists, each in batch order, and
+        // sorts the result back into batch order.
+        void merge(Positions[] lists) {
+            clear();
+            for (Positions list : lists) {
+                if (size + list.size > positions.length)
+                    positions = Arrays.copyOf(positions, Math.max(size + list.size, size * 2));
+                System.arraycopy(list.positions, 0, positions, size, list.size);
+                size += list.size;
+            }
+            Arrays.sort(positions, 0, size);
+        }
+    }
+
+    // The orders of a batch and what the steps found out about them.
+    private static class Batch {
+        final Order[] orders;
+        final int end;
+        final Order first;
+        // Position of the first order of the history, whose customer average
+        // is 0 as the history was empty; -1 when it is not in this batch.
+        final int firstIndex;
+        // History only: the orders are recorded and no quantities computed.
+        final boolean history;
+        final int[] customerQuantities;
+        final int[] patternQuantities;
+        // Orders at and after this position are left out.
+        int failure;
+
+        Batch(Order[] orders, int end, Order first, int firstIndex, boolean history) {
+            this.orders = orders;
+            this.end = end;
+            this.first = first;
+            this.firstIndex = firstIndex;
+            this.history = history;
+            customerQuantities = history ? null : new int[end];
+            patternQuantities = history ? null : new int[end];
+            failure = end;
+        }
+    }
+
+    private class Shard {
+        private final IntSet ids = new IntSet();
+        private final CustomerQuantities quantitiesByCustomer = new CustomerQuantities();
+        private final QuantityPatterns patternsByPrice = new QuantityPatterns();
+        private final ExecutorService thread;
+
+        // Orders whose ID this shard owns, filled by the calling thread.
+        private final Positions byId = new Positions();
+        // The ones that were not duplicates, and the IDs seen in this batch.
+        private final Positions accepted = new Positions();
+        private final IntSet batchIds = new IntSet();
+        // Accepted orders for the shard owning their customer or price.
+        private final Positions[] toCustomerOwner = new Positions[shards.length];
+        private final Positions[] toPriceOwner = new Positions[shards.length];
+        // Accepted orders whose customer or price this shard owns.
+        private final Positions byCustomer = new Positions();
+        private final Positions byPrice = new Positions();
+        private int failure;
+
+        Shard(int index) {
+            for (int i = 0; i < shards.length; i++) {
+                toCustomerOwner[i] = new Positions();
+                toPriceOwner[i] = new Positions();
+            }
+            thread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread worker = new Thread(runnable, "fraud-shard-" + index);
+                worker.setDaemon(true);
+                return worker;
+            });
+        }
+
+        void clear() {
+            byId.clear();
+            accepted.clear();
+            batchIds.clear();
+            for (int i = 0; i < shards.length; i++) {
+                toCustomerOwner[i].clear();
+                toPriceOwner[i].clear();
+            }
+            byCustomer.clear();
+            byPrice.clear();
+        }
+
+        // Drops the orders whose ID is in the history or came earlier in the
+        // batch, and passes the rest on. IDs are only recorded once the end
+        // of the batch is known.
+        void dropDuplicates(Batch batch) {
+            for (int k = 0; k < byId.size(); k++) {
+                int i = byId.get(k);
+                Order order = batch.orders[i];
+                if (ids.contains(order.id) || batchIds.contains(order.id))
+                    continue;
+
+                batchIds.add(order.id);
+                accepted.add(i);
+                toCustomerOwner[ownerOf(order.customer)].add(i);
+                toPriceOwner[ownerOf(order.price)].add(i);
+            }
+        }
+
+        // Collects the orders passed to this shard and finds the first one
+        // from a customer without history. No customer gains its first order
+        // during a batch, as that order is where the batch ends, except the
+        // first order of an empty history.
+        void findFailure(Batch batch, int index) {
+            Positions[] customerLists = new Positions[shards.length];
+            Positions[] priceLists = new Positions[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                customerLists[i] = shards[i].toCustomerOwner[index];
+                priceLists[i] = shards[i].toPriceOwner[index];
+            }
+            byCustomer.merge(customerLists);
+            byPrice.merge(priceLists);
+
+            failure = batch.end;
+            for (int k = 0; k < byCustomer.size(); k++) {
+                int i = byCustomer.get(k);
+                int customer = batch.orders[i].customer;
+                boolean known = batch.firstIndex < 0 ? quantitiesByCustomer.count(customer) != 0
+                        : customer == batch.orders[batch.firstIndex].customer;
+                if (!known) {
+                    failure = i;
+                    break;
+                }
+            }
+        }
+
+        void record(Batch batch) {
+            for (int k = 0; k < accepted.size() && accepted.get(k) < batch.failure; k++)
+                ids.add(batch.orders[accepted.get(k)].id);
+
+            for (int k = 0; k < byCustomer.size() && byCustomer.get(k) < batch.failure; k++) {
+                int i = byCustomer.get(k);
+                Order order = batch.orders[i];
+                if (!batch.history) {
+                    int average = i == batch.firstIndex ? 0
+                            : quantitiesByCustomer.sum(order.customer) / quantitiesByCustomer.count(order.customer);
+                    batch.customerQuantities[i] = order.quantity > average ? order.quantity - average : 0;
+                }
+                quantitiesByCustomer.add(order.customer, order.quantity);
+            }
+
+            for (int k = 0; k < byPrice.size() && byPrice.get(k) < batch.failure; k++) {
+                int i = byPrice.get(k);
+                Order order = batch.orders[i];
+                QuantityPattern pattern = patternsByPrice.get(order.price);
+                if (pattern == null) {
+                    pattern = new QuantityPattern(batch.first);
+                    patternsByPrice.put(order.price, pattern);
+                } else if (!batch.history) {
+                    batch.patternQuantities[i] = pattern.getDiff();
+                }
+                pattern.add(order);
+            }
+        }
+    }
+
+    // Appends the orders to the history as they are, without computing
+    // quantities or rejecting duplicates, like appending to Engine's history.
+    public synchronized void loadHistory(List<Order> orders) {
+        Order[] batch = orders.toArray(new Order[0]);
+        for (Shard shard : shards)
+            shard.clear();
+        for (int i = 0; i < batch.length; i++) {
+            Order order = batch[i];
+            if (order == null)
+                continue;
+
+            if (first == null)
+                first = order;
+            shards[ownerOf(order.id)].accepted.add(i);
+            shards[ownerOf(order.customer)].byCustomer.add(i);
+            shards[ownerOf(order.price)].byPrice.add(i);
+        }
+
+        Batch history = new Batch(batch, batch.length, first, -1, true);
+        run((shard, index) -> shard.record(history));
+    }
+
+    public int[] addOrdersAndGetFraudulentQuantities(List<Order> orders) {
+        return addOrdersAndGetFraudulentQuantities(orders.toArray(new Order[0]));
+    }
+
+    // Same as Engine's addOrdersAndGetFraudulentQuantities. Where Engine
+    // would throw part way, the orders before are still added and the same
+    // exception is thrown.
+    public synchronized int[] addOrdersAndGetFraudulentQuantities(Order[] orders) {
+        for (Shard shard : shards)
+            shard.clear();
+        int end = 0;
+        for (; end < orders.length && orders[end] != null; end++)
+            shards[ownerOf(orders[end].id)].byId.add(end);
+
+        // With an empty history the first order is neither a duplicate nor
+        // from an unknown customer, and starts every price pattern.
+        int firstIndex = first == null && end > 0 ? 0 : -1;
+        Batch batch = new Batch(orders, end, firstIndex < 0 ? first : orders[0], firstIndex, false);
+        run((shard, index) -> shard.dropDuplicates(batch));
+        run((shard, index) -> shard.findFailure(batch, index));
+        for (Shard shard : shards)
+            batch.failure = Math.min(batch.failure, shard.failure);
+        run((shard, index) -> shard.record(batch));
+
+        if (firstIndex >= 0 && batch.failure > firstIndex)
+            first = orders[firstIndex];
+        if (batch.failure < end)
+            throw new ArithmeticException("/ by zero");
+        if (end < orders.length)
+            throw new NullPointerException("Order is null");
+
+        int[] quantities = new int[end];
+        for (Shard shard : shards) {
+            for (int k = 0; k < shard.accepted.size(); k++) {
+                int i = shard.accepted.get(k);
+                int quantity = batch.customerQuantities[i];
+                quantities[i] = quantity != 0 ? quantity : batch.patternQuantities[i];
+            }
+        }
+        return quantities;
+    }
+
+    private interface Step {
+        void run(Shard shard, int index);
+    }
+
+    // Runs the step on every shard's thread and waits for all of them.
+    private void run(Step step) {
+        List<Future<?>> running = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            int index = i;
+            running.add(shard.thread.submit(() -> step.run(shard, index)));
+        }
+
+        try {
+            for (Future<?> shard : running)
+                shard.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A shard failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards)
+            shard.thread.shutdownNow();
+    }
+}
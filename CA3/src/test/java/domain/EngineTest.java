@@ -5,6 +5,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
 public class EngineTest {
     private Engine engine;
 
@@ -213,4 +219,185 @@ public class EngineTest {
         Assertions.assertEquals(0, engine.addOrderAndGetFraudulentQuantity(argumanOrder));
     }
 
+    @Test
+    @DisplayName("Test getAverageOrderQuantityByCustomer follows orders added to and cleared from orderHistory")
+    public void getAverageOrderQuantityByCustomerFollowsHistoryChanges() {
+        engine.orderHistory.add(creatOrder(1, 1, 100, 10));
+        engine.orderHistory.add(creatOrder(2, 1, 100, 20));
+        Assertions.assertEquals(15, engine.getAverageOrderQuantityByCustomer(1));
+
+        engine.orderHistory.add(creatOrder(3, 1, 100, 60));
+        Assertions.assertEquals(30, engine.getAverageOrderQuantityByCustomer(1));
+
+        engine.orderHistory.clear();
+        engine.orderHistory.add(creatOrder(1, 2, 100, 10));
+        engine.orderHistory.add(creatOrder(2, 1, 100, 20));
+        Assertions.assertEquals(20, engine.getAverageOrderQuantityByCustomer(1));
+        Assertions.assertEquals(10, engine.getAverageOrderQuantityByCustomer(2));
+    }
+
+    @Test
+    @DisplayName("Test addOrderAndGetFraudulentQuantity matches a full scan of the history for many customers")
+    public void addOrderAndGetFraudulentQuantityMatchesScan() {
+        engine.orderHistory.add(creatOrder(0, 0, 0, 1));
+        for (int id = 1; id < 2000; id++) {
+            Order order = creatOrder(id, 0, id % 7, 1 + (id * 31) % 50);
+            int sum = 0;
+            int count = 0;
+            for (Order oldOrder : engine.orderHistory) {
+                if (oldOrder.customer == 0) {
+                    sum += oldOrder.quantity;
+                    count++;
+                }
+            }
+
+            int expected = Math.max(order.quantity - sum / count, 0);
+            int actual = engine.getCustomerFraudulentQuantity(order);
+            Assertions.assertEquals(expected, actual);
+            engine.addOrderAndGetFraudulentQuantity(order);
+        }
+
+        for (int customer = 1; customer < 300; customer++)
+            engine.orderHistory.add(creatOrder(10_000 + customer, customer, 1, customer));
+        for (int customer = 1; customer < 300; customer++)
+            Assertions.assertEquals(customer, engine.getAverageOrderQuantityByCustomer(customer));
+    }
+
+    @Test
+    @DisplayName("Test addOrderAndGetFraudulentQuantity rejects duplicates by id after the history was cleared")
+    public void addOrderAndGetFraudulentQuantityDuplicateAfterHistoryChanges() {
+        engine.orderHistory.add(creatOrder(0, 1, 100, 10));
+        engine.orderHistory.add(creatOrder(1, 1, 100, 10));
+        Assertions.assertTrue(engine.orderHistory.contains(creatOrder(0, 9, 9, 9)));
+
+        engine.orderHistory.clear();
+        engine.orderHistory.add(creatOrder(1, 1, 100, 10));
+        Assertions.assertFalse(engine.orderHistory.contains(creatOrder(0, 1, 100, 10)));
+
+        Assertions.assertEquals(0, engine.addOrderAndGetFraudulentQuantity(creatOrder(1, 1, 100, 500)));
+        Assertions.assertEquals(1, engine.orderHistory.size());
+        Assertions.assertEquals(490, engine.addOrderAndGetFraudulentQuantity(creatOrder(2, 1, 100, 500)));
+        Assertions.assertEquals(0, engine.addOrderAndGetFraudulentQuantity(creatOrder(2, 1, 100, 500)));
+    }
+
+    // The history walk getQuantityPatternByPrice used to do, kept to check the index against.
+    private static int scanQuantityPatternByPrice(OrderHistory orderHistory, int price) {
+        if (orderHistory.size() == 0) {
+            return 0;
+        }
+
+        var diff = 0;
+        var previous = orderHistory.get(0);
+        for (Order currentOrder : orderHistory) {
+            if (currentOrder.id == previous.id || currentOrder.price != price) {
+                continue;
+            }
+
+            if (diff == 0) {
+                diff = currentOrder.quantity - previous.quantity;
+                previous = currentOrder;
+            } else if (diff != currentOrder.quantity - previous.quantity) {
+                return 0;
+            }
+        }
+
+        return diff;
+    }
+
+    @Test
+    @DisplayName("Test getQuantityPatternByPrice matches a full scan of random histories")
+    public void getQuantityPatternByPriceMatchesScan() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            engine = new Engine();
+            int start = random.nextInt(5);
+            int step = random.nextInt(3);
+            for (int i = 0; i < 40; i++) {
+                int price = random.nextInt(4);
+                // Mostly regular steps, with repeated ids and quantities to hit every branch.
+                int quantity = random.nextInt(8) == 0 ? random.nextInt(20) : start + step * i;
+                engine.orderHistory.add(creatOrder(random.nextInt(30), 1, price, quantity));
+
+                for (int queried = 0; queried < 5; queried++)
+                    Assertions.assertEquals(scanQuantityPatternByPrice(engine.orderHistory, queried),
+                            engine.getQuantityPatternByPrice(queried));
+            }
+
+            engine.orderHistory.clear();
+            engine.orderHistory.add(creatOrder(random.nextInt(30), 1, random.nextInt(4), start));
+            for (int queried = 0; queried < 5; queried++)
+                Assertions.assertEquals(scanQuantityPatternByPrice(engine.orderHistory, queried),
+                        engine.getQuantityPatternByPrice(queried));
+        }
+    }
+
+    private static List<Order> randomOrders(Random random, int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            // One customer, as a customer without history divides by zero; small
+            // ranges, so duplicates, averages and price patterns all come up.
+            orders.add(creatOrder(random.nextInt(count), 1, random.nextInt(4), random.nextInt(10)));
+
+        return orders;
+    }
+
+    private static int[] addOneByOne(List<Order> orders) {
+        Engine reference = new Engine();
+        int[] quantities = new int[orders.size()];
+        for (int i = 0; i < orders.size(); i++)
+            quantities[i] = reference.addOrderAndGetFraudulentQuantity(orders.get(i));
+
+        return quantities;
+    }
+
+    @Test
+    @DisplayName("Test addOrdersAndGetFraudulentQuantities matches adding orders one at a time")
+    public void addOrdersAndGetFraudulentQuantitiesMatchesOneByOne() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<Order> orders = randomOrders(random, 200);
+            int[] expected = addOneByOne(orders);
+
+            Engine fromList = new Engine();
+            int[] firstHalf = fromList.addOrdersAndGetFraudulentQuantities(orders.subList(0, 100));
+            int[] secondHalf = fromList.addOrdersAndGetFraudulentQuantities(orders.subList(100, 200));
+            Engine fromArray = new Engine();
+            int[] all = fromArray.addOrdersAndGetFraudulentQuantities(orders.toArray(new Order[0]));
+
+            for (int i = 0; i < orders.size(); i++) {
+                Assertions.assertEquals(expected[i], i < 100 ? firstHalf[i] : secondHalf[i - 100]);
+                Assertions.assertEquals(expected[i], all[i]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test addOrdersAndGetFraudulentQuantities with an empty batch")
+    public void addOrdersAndGetFraudulentQuantitiesEmpty() {
+        Assertions.assertEquals(0, engine.addOrdersAndGetFraudulentQuantities(List.of()).length);
+        Assertions.assertEquals(0, engine.addOrdersAndGetFraudulentQuantities(new Order[0]).length);
+        Assertions.assertTrue(engine.orderHistory.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test subscribe matches adding orders one at a time")
+    public void subscribeMatchesOneByOne() throws Exception {
+        List<Order> orders = randomOrders(new Random(11), 3000);
+        int[] expected = addOneByOne(orders);
+
+        List<Order> seen = new ArrayList<>();
+        int[] quantities = new int[orders.size()];
+        OrderSubscriber subscriber = engine.subscribe((order, quantity) -> {
+            quantities[seen.size()] = quantity;
+            seen.add(order);
+        });
+        try (SubmissionPublisher<Order> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(subscriber);
+            orders.forEach(publisher::submit);
+        }
+        subscriber.getCompletion().get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(orders, seen);
+        Assertions.assertArrayEquals(expected, quantities);
+    }
 }
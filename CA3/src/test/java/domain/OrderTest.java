@@ -2,6 +2,9 @@ package domain;
 
 import org.junit.jupiter.api.*;
 
+import java.util.HashSet;
+import java.util.List;
+
 public class OrderTest {
     private Order order;
 
@@ -26,6 +29,15 @@ public class OrderTest {
         Assertions.assertEquals(order, newOrder);
     }
 
+    @Test
+    public void EqualOrdersHashCodeTest() {
+        Order newOrder = new Order();
+        newOrder.setId(0);
+        newOrder.setQuantity(3);
+        Assertions.assertEquals(order.hashCode(), newOrder.hashCode());
+        Assertions.assertTrue(new HashSet<>(List.of(order)).contains(newOrder));
+    }
+
     @Test
     public void NotOrderObjectTest() {
         Object object = new Object();
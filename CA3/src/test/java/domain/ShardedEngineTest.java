@@ -0,0 +1,121 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static domain.EngineTest.creatOrder;
+
+public class ShardedEngineTest {
+    private static final int CUSTOMERS = 6;
+
+    private static List<Order> randomOrders(Random random, int firstId, int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            // Ids overlap between batches, so duplicates come up as well.
+            orders.add(creatOrder(firstId + random.nextInt(count), random.nextInt(CUSTOMERS), random.nextInt(5), random.nextInt(10)));
+
+        return orders;
+    }
+
+    private static List<Order> history(Random random) {
+        List<Order> history = new ArrayList<>();
+        for (int customer = 0; customer < CUSTOMERS; customer++)
+            history.add(creatOrder(-1 - customer, customer, random.nextInt(5), 1 + random.nextInt(5)));
+
+        return history;
+    }
+
+    private static int[] addOneByOne(Engine engine, List<Order> orders) {
+        int[] quantities = new int[orders.size()];
+        for (int i = 0; i < orders.size(); i++)
+            quantities[i] = engine.addOrderAndGetFraudulentQuantity(orders.get(i));
+
+        return quantities;
+    }
+
+    @Test
+    @DisplayName("Test ShardedEngine matches Engine over several batches")
+    public void matchesEngine() {
+        for (int shards = 1; shards <= 8; shards++) {
+            Random random = new Random(shards);
+            Engine engine = new Engine();
+            List<Order> history = history(random);
+            engine.orderHistory.addAll(history);
+
+            try (ShardedEngine sharded = new ShardedEngine(shards)) {
+                sharded.loadHistory(history);
+                for (int batch = 0; batch < 20; batch++) {
+                    List<Order> orders = randomOrders(random, batch * 100, 150);
+                    Assertions.assertArrayEquals(addOneByOne(engine, orders),
+                            sharded.addOrdersAndGetFraudulentQuantities(orders));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test ShardedEngine matches Engine from an empty history")
+    public void matchesEngineFromEmptyHistory() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            orders.add(creatOrder(i % 40, 3, i % 4, 2 + i % 7));
+
+        try (ShardedEngine sharded = new ShardedEngine(3)) {
+            Assertions.assertArrayEquals(addOneByOne(new Engine(), orders),
+                    sharded.addOrdersAndGetFraudulentQuantities(orders.toArray(new Order[0])));
+        }
+    }
+
+    @Test
+    @DisplayName("Test ShardedEngine keeps the orders before an unknown customer, like Engine")
+    public void unknownCustomerKeepsEarlierOrders() {
+        Random random = new Random(5);
+        Engine engine = new Engine();
+        List<Order> history = history(random);
+        engine.orderHistory.addAll(history);
+
+        try (ShardedEngine sharded = new ShardedEngine(2)) {
+            sharded.loadHistory(history);
+            List<Order> orders = randomOrders(random, 0, 30);
+            orders.add(20, creatOrder(1000, CUSTOMERS, 1, 1));
+
+            Assertions.assertThrows(ArithmeticException.class, () -> addOneByOne(engine, orders));
+            Assertions.assertThrows(ArithmeticException.class, () -> sharded.addOrdersAndGetFraudulentQuantities(orders));
+
+            List<Order> next = randomOrders(random, 0, 60);
+            Assertions.assertArrayEquals(addOneByOne(engine, next), sharded.addOrdersAndGetFraudulentQuantities(next));
+        }
+    }
+
+    @Test
+    @DisplayName("Test ShardedEngine keeps the orders before a null order, like Engine")
+    public void nullOrderKeepsEarlierOrders() {
+        Random random = new Random(9);
+        Engine engine = new Engine();
+        List<Order> history = history(random);
+        engine.orderHistory.addAll(history);
+
+        try (ShardedEngine sharded = new ShardedEngine(4)) {
+            sharded.loadHistory(history);
+            List<Order> orders = randomOrders(random, 0, 30);
+            orders.add(25, null);
+
+            Assertions.assertThrows(NullPointerException.class, () -> addOneByOne(engine, orders));
+            Assertions.assertThrows(NullPointerException.class, () -> sharded.addOrdersAndGetFraudulentQuantities(orders));
+
+            List<Order> next = randomOrders(random, 0, 60);
+            Assertions.assertArrayEquals(addOneByOne(engine, next), sharded.addOrdersAndGetFraudulentQuantities(next));
+        }
+    }
+
+    @Test
+    @DisplayName("Test ShardedEngine rejects a shard count below one")
+    public void invalidShardCount() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ShardedEngine(0));
+    }
+}
@@ -0,0 +1,112 @@
+package benchmarks;
+
+import database.WriteAheadLog;
+import exceptions.*;
+import model.Comment;
+import model.Commodity;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Mutations grow the dataset, so it is reloaded before every iteration to
+// keep iterations comparable. With writeAheadLog set every mutation is also
+// logged, which shows what the log adds to each request.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalootMutationBenchmark {
+    @Param({"false", "true"})
+    public boolean writeAheadLog;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Setup
+    public void enableWriteAheadLog(BalootState state) throws IOException {
+        if (!writeAheadLog)
+            return;
+
+        System.setProperty(WriteAheadLog.LOG_PATH_PROPERTY, state.dataPath.resolve("baloot.wal").toString());
+        state.baloot.enableWriteAheadLog();
+    }
+
+    @TearDown
+    public void closeWriteAheadLog(BalootState state) throws IOException {
+        state.baloot.closeWriteAheadLog();
+    }
+
+    @Setup(Level.Iteration)
+    public void reload(BalootState state) {
+        state.reload();
+    }
+
+    private String username(BalootState state, Cursor cursor) {
+        return SyntheticData.username(cursor.next(state.users));
+    }
+
+    private String commodityId(BalootState state, Cursor cursor) {
+        return SyntheticData.commodityId(cursor.next(state.commodities));
+    }
+
+    @Benchmark
+    public void addAndRemoveBuyListItem(BalootState state, Cursor cursor)
+            throws NotExistentUser, NotExistentCommodity, AlreadyInBuyList, NotInStock,
+            MissingUserId, MissingCommodityId, CommodityIsNotInBuyList {
+        String username = username(state, cursor);
+        String commodityId = commodityId(state, cursor);
+        state.baloot.addCommodityToUserBuyList(username, commodityId);
+        state.baloot.removeCommodityFromUserBuyList(username, commodityId);
+    }
+
+    @Benchmark
+    public void checkout(BalootState state, Cursor cursor)
+            throws NotExistentUser, NotExistentCommodity, AlreadyInBuyList, NotInStock,
+            InsufficientCredit, InvalidQuantity, InvalidWithdrawAmount {
+        User user = state.baloot.getUserById(username(state, cursor));
+        state.baloot.addCommodityToUserBuyList(user.getUsername(), commodityId(state, cursor));
+        state.baloot.addCommodityToUserBuyList(user.getUsername(), commodityId(state, cursor));
+        state.baloot.withdrawPayableAmount(user);
+    }
+
+    @Benchmark
+    public void addUser(BalootState state) throws UsernameAlreadyTaken {
+        String username = "benchmark-user-" + sequence.incrementAndGet();
+        state.baloot.addUser(new User(username, "password", username + "@gmail.com", "2000-01-01", "Tehran, Iran"));
+    }
+
+    @Benchmark
+    public void addComment(BalootState state, Cursor cursor) {
+        String username = username(state, cursor);
+        int commodityId = cursor.next(state.commodities) + 1;
+        state.baloot.addComment(new Comment(state.baloot.generateCommentId(), username + "@gmail.com", username, commodityId, "benchmark"));
+    }
+
+    @Benchmark
+    public void updateCommodityCategories(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        ArrayList<String> categories = new ArrayList<>(List.of(
+                SyntheticData.category(cursor.next(SyntheticData.CATEGORY_COUNT)),
+                SyntheticData.category(cursor.next(SyntheticData.CATEGORY_COUNT))));
+        state.baloot.updateCommodityCategories(commodityId(state, cursor), categories);
+    }
+
+    // Controllers rate and vote on the models directly, so these cover the
+    // remaining write paths of a page view.
+    @Benchmark
+    public void rateCommodity(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        Commodity commodity = state.baloot.getCommodityById(commodityId(state, cursor));
+        commodity.addRate(username(state, cursor), 1 + cursor.next(10));
+    }
+
+    @Benchmark
+    public void voteComment(BalootState state, Cursor cursor) throws NotExistentComment {
+        Comment comment = state.baloot.getCommentById(cursor.next(state.comments));
+        comment.addUserVote(username(state, cursor), cursor.next(2) == 0 ? "like" : "dislike");
+    }
+}
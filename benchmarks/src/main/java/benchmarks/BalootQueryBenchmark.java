@@ -0,0 +1,130 @@
+package benchmarks;
+
+import exceptions.*;
+import model.Comment;
+import model.Commodity;
+import model.Provider;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import service.Baloot;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalootQueryBenchmark {
+    private User user(BalootState state, Cursor cursor) throws NotExistentUser {
+        return state.baloot.getUserById(SyntheticData.username(cursor.next(state.users)));
+    }
+
+    private Commodity commodity(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        return state.baloot.getCommodityById(SyntheticData.commodityId(cursor.next(state.commodities)));
+    }
+
+    @Benchmark
+    public void login(BalootState state, Cursor cursor) throws NotExistentUser, IncorrectPassword {
+        int index = cursor.next(state.users);
+        state.baloot.login(SyntheticData.username(index), "password" + index);
+    }
+
+    @Benchmark
+    public User getUserById(BalootState state, Cursor cursor) throws NotExistentUser {
+        return user(state, cursor);
+    }
+
+    @Benchmark
+    public Provider getProviderById(BalootState state, Cursor cursor) throws NotExistentProvider {
+        return state.baloot.getProviderById(SyntheticData.providerId(cursor.next(state.data.providerCount())));
+    }
+
+    @Benchmark
+    public Commodity getCommodityById(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        return commodity(state, cursor);
+    }
+
+    @Benchmark
+    public ArrayList<Commodity> getCommodities(BalootState state) {
+        return state.baloot.getCommodities();
+    }
+
+    @Benchmark
+    public ArrayList<Commodity> getCommoditiesProvidedByProvider(BalootState state, Cursor cursor) {
+        return state.baloot.getCommoditiesProvidedByProvider(SyntheticData.providerId(cursor.next(state.data.providerCount())));
+    }
+
+    @Benchmark
+    public ArrayList<Comment> getCommentsForCommodity(BalootState state, Cursor cursor) {
+        return state.baloot.getCommentsForCommodity(cursor.next(state.commodities) + 1);
+    }
+
+    @Benchmark
+    public ArrayList<Comment> getCommentsForCommodityPage(BalootState state, Cursor cursor) throws InvalidPageRange {
+        return state.baloot.getCommentsForCommodity(cursor.next(state.commodities) + 1, 0, 10);
+    }
+
+    @Benchmark
+    public Comment getCommentById(BalootState state, Cursor cursor) throws NotExistentComment {
+        return state.baloot.getCommentById(cursor.next(state.comments));
+    }
+
+    @Benchmark
+    public ArrayList<Commodity> filterCommoditiesByCategory(BalootState state, Cursor cursor) {
+        return state.baloot.filterCommoditiesByCategory(SyntheticData.category(cursor.next(SyntheticData.CATEGORY_COUNT)));
+    }
+
+    @Benchmark
+    public ArrayList<Commodity> filterCommoditiesByName(BalootState state, Cursor cursor) {
+        return state.baloot.filterCommoditiesByName(SyntheticData.nameWord(cursor.next(state.commodities)));
+    }
+
+    @Benchmark
+    public ArrayList<Commodity> filterCommoditiesByProviderName(BalootState state, Cursor cursor) {
+        return state.baloot.filterCommoditiesByProviderName(SyntheticData.providerName(cursor.next(state.data.providerCount())));
+    }
+
+    @Benchmark
+    public Map<String, Integer> getUserBuyList(BalootState state, Cursor cursor) throws NotExistentUser {
+        return state.baloot.getUserBuyList(SyntheticData.username(cursor.next(state.users)));
+    }
+
+    @Benchmark
+    public Map<String, Integer> getUserPurchasedList(BalootState state, Cursor cursor) throws NotExistentUser {
+        return state.baloot.getUserPurchasedList(SyntheticData.username(cursor.next(state.users)));
+    }
+
+    @Benchmark
+    public float getCurrentBuyListPrice(BalootState state, Cursor cursor) throws NotExistentUser {
+        return state.baloot.getCurrentBuyListPrice(user(state, cursor));
+    }
+
+    @Benchmark
+    public int generateCommentId(BalootState state) {
+        return state.baloot.generateCommentId();
+    }
+
+    @Benchmark
+    public int isInSimilarCategoryWithFirstCommodity(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        return state.baloot.isInSimilarCategoryWithFirstCommodity(commodity(state, cursor), commodity(state, cursor));
+    }
+
+    @Benchmark
+    public float getSimilarityScore(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        return state.baloot.getSimilarityScore(commodity(state, cursor), commodity(state, cursor));
+    }
+
+    @Benchmark
+    public ArrayList<Commodity> suggestSimilarCommodities(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        return state.baloot.suggestSimilarCommodities(commodity(state, cursor));
+    }
+
+    // Bypasses the suggestion cache to measure the ranking itself.
+    @Benchmark
+    public ArrayList<Commodity> rankSimilarCommodities(BalootState state, Cursor cursor) throws NotExistentCommodity {
+        return state.baloot.suggestSimilarCommodities(commodity(state, cursor), Baloot.MAX_NUMBER_OF_COMMODITY_SUGGESTIONS);
+    }
+}
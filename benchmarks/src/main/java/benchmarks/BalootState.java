@@ -0,0 +1,48 @@
+package benchmarks;
+
+import database.DataParser;
+import database.DatabaseSnapshot;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.Baloot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Loads a synthetic dataset of the requested size into the Baloot singleton.
+// JMH runs every parameter combination in its own fork, so each fork sees
+// exactly one dataset.
+@State(Scope.Benchmark)
+public class BalootState {
+    @Param({"1000"})
+    public int users;
+
+    @Param({"1000", "10000"})
+    public int commodities;
+
+    @Param({"10000"})
+    public int comments;
+
+    public Baloot baloot;
+    public SyntheticData data;
+    public Path dataPath;
+
+    @Setup
+    public void load() throws IOException {
+        data = new SyntheticData(users, commodities, comments);
+        dataPath = data.writeTo(Files.createTempDirectory("baloot-benchmark"));
+        System.setProperty(DataParser.DATA_PATH_PROPERTY, dataPath.toString());
+        System.setProperty(DatabaseSnapshot.SNAPSHOT_PATH_PROPERTY, dataPath.resolve("baloot.snapshot").toString());
+
+        baloot = Baloot.getInstance();
+        // The singleton may already exist when benchmarks run without forking.
+        baloot.fetchAndStoreData();
+    }
+
+    public void reload() {
+        baloot.fetchAndStoreData();
+    }
+}
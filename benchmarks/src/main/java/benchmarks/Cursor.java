@@ -0,0 +1,18 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// Walks the dataset with a fixed stride so consecutive invocations touch
+// different records without paying for a random number generator.
+@State(Scope.Thread)
+public class Cursor {
+    private static final int STRIDE = 7919;
+
+    private int position;
+
+    public int next(int bound) {
+        position = (position + STRIDE) % bound;
+        return position;
+    }
+}
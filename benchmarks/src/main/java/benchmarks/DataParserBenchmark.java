@@ -0,0 +1,84 @@
+package benchmarks;
+
+import database.DataParser;
+import database.Database;
+import database.DatabaseSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataParserBenchmark {
+    private DataParser parser(BalootState state) {
+        return new DataParser(Database.getInstance(), state.dataPath.toString());
+    }
+
+    @Benchmark
+    public void getUsersList(BalootState state) throws IOException {
+        parser(state).getUsersList();
+    }
+
+    @Benchmark
+    public void getProvidersList(BalootState state) throws IOException {
+        parser(state).getProvidersList();
+    }
+
+    @Benchmark
+    public void getCommoditiesList(BalootState state) throws IOException {
+        parser(state).getCommoditiesList();
+    }
+
+    @Benchmark
+    public void getCommentsList(BalootState state) throws IOException {
+        parser(state).getCommentsList();
+    }
+
+    // The two largest files, read through memory mappings instead of read
+    // calls.
+    @Benchmark
+    public void getCommoditiesListMapped(BalootState state) throws IOException {
+        new DataParser(Database.getInstance(), state.dataPath.toString(), true).getCommoditiesList();
+    }
+
+    @Benchmark
+    public void getCommentsListMapped(BalootState state) throws IOException {
+        new DataParser(Database.getInstance(), state.dataPath.toString(), true).getCommentsList();
+    }
+
+    // Reloading an unchanged file only parses and diffs it.
+    @Benchmark
+    public boolean reloadCommodities(BalootState state) throws IOException {
+        return parser(state).reloadCommodities();
+    }
+
+    @Benchmark
+    public void fetchAndStoreData(BalootState state) {
+        state.baloot.fetchAndStoreData();
+    }
+
+    @Benchmark
+    public void saveSnapshot(BalootState state) throws IOException {
+        state.baloot.saveSnapshot();
+    }
+
+    @Benchmark
+    public boolean loadSnapshot(SnapshotState snapshot) throws IOException {
+        return snapshot.snapshot.load();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SnapshotState {
+        DatabaseSnapshot snapshot;
+
+        @Setup
+        public void save(BalootState state) throws IOException {
+            snapshot = new DatabaseSnapshot(Database.getInstance(), state.dataPath.resolve("benchmark.snapshot"));
+            snapshot.save();
+        }
+    }
+}
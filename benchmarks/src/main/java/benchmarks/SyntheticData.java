@@ -0,0 +1,146 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Writes a data directory in the layout DataParser reads. The same seed and
+// sizes always produce the same files, so runs on different commits measure
+// the same dataset.
+public class SyntheticData {
+    static final int CATEGORY_COUNT = 20;
+    static final int COMMODITIES_PER_PROVIDER = 10;
+    private static final String[] NAME_WORDS = {
+            "phone", "laptop", "watch", "camera", "speaker", "tablet", "monitor", "keyboard",
+            "mouse", "router", "charger", "headset", "printer", "console", "drive", "lens"};
+
+    private final int users;
+    private final int commodities;
+    private final int comments;
+    private final Random random = new Random(42);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public SyntheticData(int users, int commodities, int comments) {
+        this.users = users;
+        this.commodities = commodities;
+        this.comments = comments;
+    }
+
+    public static String username(int index) {
+        return "user" + index;
+    }
+
+    public static String commodityId(int index) {
+        return String.valueOf(index + 1);
+    }
+
+    public static String providerId(int index) {
+        return String.valueOf(index + 1);
+    }
+
+    public static String providerName(int index) {
+        return "provider" + index;
+    }
+
+    public static String category(int index) {
+        return "category" + index;
+    }
+
+    public static String nameWord(int index) {
+        return NAME_WORDS[index % NAME_WORDS.length];
+    }
+
+    public int providerCount() {
+        return Math.max(1, commodities / COMMODITIES_PER_PROVIDER);
+    }
+
+    public Path writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        write(directory.resolve("users.json"), users());
+        write(directory.resolve("providers.json"), providers());
+        write(directory.resolve("commodities.json"), commodities());
+        write(directory.resolve("comments.json"), comments());
+        return directory;
+    }
+
+    private void write(Path file, List<Map<String, Object>> records) throws IOException {
+        objectMapper.writeValue(file.toFile(), records);
+    }
+
+    private List<Map<String, Object>> users() {
+        List<Map<String, Object>> records = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            Map<String, Object> user = new LinkedHashMap<>();
+            user.put("username", username(i));
+            user.put("password", "password" + i);
+            user.put("email", username(i) + "@gmail.com");
+            user.put("birthDate", "2000-01-01");
+            user.put("address", "Tehran, Iran");
+            user.put("credit", 1_000_000_000.0);
+            records.add(user);
+        }
+
+        return records;
+    }
+
+    private List<Map<String, Object>> providers() {
+        List<Map<String, Object>> records = new ArrayList<>(providerCount());
+        for (int i = 0; i < providerCount(); i++) {
+            Map<String, Object> provider = new LinkedHashMap<>();
+            provider.put("id", providerId(i));
+            provider.put("name", providerName(i));
+            provider.put("registryDate", "2000-01-01");
+            provider.put("image", "");
+            records.add(provider);
+        }
+
+        return records;
+    }
+
+    private List<Map<String, Object>> commodities() {
+        List<Map<String, Object>> records = new ArrayList<>(commodities);
+        for (int i = 0; i < commodities; i++) {
+            List<String> categories = new ArrayList<>();
+            categories.add(category(random.nextInt(CATEGORY_COUNT)));
+            String second = category(random.nextInt(CATEGORY_COUNT));
+            if (!categories.contains(second))
+                categories.add(second);
+
+            Map<String, Object> commodity = new LinkedHashMap<>();
+            commodity.put("id", commodityId(i));
+            commodity.put("name", nameWord(random.nextInt(NAME_WORDS.length)) + " " + nameWord(random.nextInt(NAME_WORDS.length)) + " " + i);
+            commodity.put("providerId", providerId(i % providerCount()));
+            commodity.put("price", 1 + random.nextInt(1000));
+            commodity.put("categories", categories);
+            commodity.put("rating", Math.round(random.nextFloat() * 100) / 10f);
+            commodity.put("inStock", 1_000_000_000);
+            commodity.put("image", "");
+            records.add(commodity);
+        }
+
+        return records;
+    }
+
+    private List<Map<String, Object>> comments() {
+        List<Map<String, Object>> records = new ArrayList<>(comments);
+        for (int i = 0; i < comments; i++) {
+            int user = random.nextInt(users);
+            Map<String, Object> comment = new LinkedHashMap<>();
+            comment.put("userEmail", username(user) + "@gmail.com");
+            comment.put("username", username(user));
+            comment.put("commodityId", Integer.parseInt(commodityId(random.nextInt(commodities))));
+            comment.put("text", "comment " + i);
+            comment.put("date", "2023-01-01");
+            records.add(comment);
+        }
+
+        return records;
+    }
+}
@@ -0,0 +1,68 @@
+package domain;
+
+import benchmarks.Cursor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Lives in the engine's package to seed its history directly: the public API
+// rejects the first order of every customer but one once history is non-empty.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    private static final int PRICES = 10;
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "10000"})
+    public int historySize;
+
+    @Param({"100"})
+    public int customers;
+
+    private Engine engine;
+    private int nextId;
+
+    private static Order order(int id, int customer, int price, int quantity) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCustomer(customer);
+        order.setPrice(price);
+        order.setQuantity(quantity);
+        return order;
+    }
+
+    // Orders added by the previous iteration are dropped so every iteration
+    // starts from the same history.
+    @Setup(Level.Iteration)
+    public void seed() {
+        engine = new Engine();
+        for (int id = 0; id < historySize; id++)
+            engine.orderHistory.add(order(id, id % customers, id % PRICES, 1 + id % 7));
+        nextId = historySize;
+    }
+
+    @Benchmark
+    public int addNewOrder(Cursor cursor) {
+        return engine.addOrderAndGetFraudulentQuantity(
+                order(nextId++, cursor.next(customers), cursor.next(PRICES), 1 + cursor.next(10)));
+    }
+
+    @Benchmark
+    public int addDuplicateOrder(Cursor cursor) {
+        return engine.addOrderAndGetFraudulentQuantity(
+                order(cursor.next(historySize), 0, 0, 1));
+    }
+
+    // A batch of BATCH_SIZE new orders per call; divide by it for the per-order cost.
+    @Benchmark
+    public int[] addNewOrderBatch(Cursor cursor) {
+        Order[] batch = new Order[BATCH_SIZE];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = order(nextId++, cursor.next(customers), cursor.next(PRICES), 1 + cursor.next(10));
+        return engine.addOrdersAndGetFraudulentQuantities(batch);
+    }
+}
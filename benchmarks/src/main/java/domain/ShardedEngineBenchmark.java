@@ -0,0 +1,68 @@
+package domain;
+
+import benchmarks.Cursor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Batches of new orders through ShardedEngine, to compare with
+// EngineBenchmark.addNewOrderBatch on the same history and to see how the
+// time per batch changes with the number of shards.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedEngineBenchmark {
+    private static final int PRICES = 10;
+
+    @Param({"10000"})
+    public int historySize;
+
+    @Param({"100"})
+    public int customers;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"1000", "100000"})
+    public int batchSize;
+
+    private ShardedEngine engine;
+    private int nextId;
+
+    private static Order order(int id, int customer, int price, int quantity) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCustomer(customer);
+        order.setPrice(price);
+        order.setQuantity(quantity);
+        return order;
+    }
+
+    @Setup(Level.Iteration)
+    public void seed() {
+        engine = new ShardedEngine(shards);
+        List<Order> history = new ArrayList<>(historySize);
+        for (int id = 0; id < historySize; id++)
+            history.add(order(id, id % customers, id % PRICES, 1 + id % 7));
+        engine.loadHistory(history);
+        nextId = historySize;
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        engine.close();
+    }
+
+    @Benchmark
+    public int[] addNewOrderBatch(Cursor cursor) {
+        Order[] batch = new Order[batchSize];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = order(nextId++, cursor.next(customers), cursor.next(PRICES), 1 + cursor.next(10));
+        return engine.addOrdersAndGetFraudulentQuantities(batch);
+    }
+}